@@ -0,0 +1,56 @@
+package rohlik.casares.casestudy;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import rohlik.casares.casestudy.dto.OrderDto;
+import rohlik.casares.casestudy.dto.OrderProductDto;
+import rohlik.casares.casestudy.dto.ProductDto;
+import rohlik.casares.casestudy.model.Product;
+import rohlik.casares.casestudy.repository.ProductRepository;
+
+public class BenchmarkApplication {
+
+    public static final int PRODUCT_COUNT = 100;
+
+    private BenchmarkApplication(){}
+
+    public static ConfigurableApplicationContext start() {
+        final ConfigurableApplicationContext context = new SpringApplicationBuilder(CaseStudyApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:benchmark",
+                        "spring.jpa.show-sql=false",
+                        "spring.sql.init.mode=never",
+                        "orders.expiry.max-pending=0",
+                        "orders.sweeper.interval=PT24H",
+                        "logging.level.root=WARN"
+                )
+                .run();
+
+        context.getBean(ProductRepository.class)
+               .saveAll(IntStream.rangeClosed(1, PRODUCT_COUNT)
+                                 .mapToObj(i -> Product.builder()
+                                                       .name("Product " + i)
+                                                       .price(BigDecimal.valueOf(i, 2))
+                                                       .quantity(Integer.MAX_VALUE)
+                                                       .build())
+                                 .collect(Collectors.toList()));
+        return context;
+    }
+
+    public static OrderDto orderOf(int lineCount) {
+        final List<OrderProductDto> lines = IntStream.rangeClosed(1, lineCount)
+                                                     .mapToObj(i -> OrderProductDto.builder()
+                                                                                   .product(ProductDto.builder()
+                                                                                                      .productId((long) i)
+                                                                                                      .build())
+                                                                                   .productQuantity(1)
+                                                                                   .build())
+                                                     .collect(Collectors.toList());
+        return OrderDto.builder().products(lines).build();
+    }
+}
@@ -0,0 +1,98 @@
+package rohlik.casares.casestudy.service.impl;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import rohlik.casares.casestudy.BenchmarkApplication;
+import rohlik.casares.casestudy.cache.CatalogProduct;
+import rohlik.casares.casestudy.dto.OrderProductDto;
+import rohlik.casares.casestudy.exception.InvalidRequestException;
+import rohlik.casares.casestudy.exception.ProductNotFoundException;
+import rohlik.casares.casestudy.model.Order;
+import rohlik.casares.casestudy.model.OrderProduct;
+import rohlik.casares.casestudy.model.Product;
+import rohlik.casares.casestudy.utils.ProductMapper;
+
+/**
+ * Compares the single-pass minor-unit pricing with the previous stream and BigDecimal based pipeline, which is kept
+ * here as the baseline.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderPricingBenchmark {
+
+    @Param({"1", "10", "100"})
+    int lineCount;
+
+    List<OrderProductDto> lines;
+
+    Map<Long, CatalogProduct> catalogProducts;
+
+    @Setup
+    public void setUp() {
+        lines = BenchmarkApplication.orderOf(lineCount).getProducts();
+        catalogProducts = LongStream.rangeClosed(1, lineCount)
+                                    .mapToObj(i -> Product.builder()
+                                                          .id(i)
+                                                          .name("Product " + i)
+                                                          .price(BigDecimal.valueOf(i * 37, 2))
+                                                          .build())
+                                    .map(ProductMapper::mapToCatalogProduct)
+                                    .collect(Collectors.toMap(CatalogProduct::getId, Function.identity()));
+    }
+
+    @Benchmark
+    public List<OrderProduct> baseline() throws ProductNotFoundException {
+        final List<Long> productIdList = lines.stream()
+                                              .map(op -> op.getProduct().getProductId())
+                                              .collect(Collectors.toList());
+        final Map<Long, Product> products = productIdList.stream()
+                                                         .map(catalogProducts::get)
+                                                         .map(ProductMapper::mapToProduct)
+                                                         .collect(Collectors.toMap(
+                                                                 Product::getId, Function.identity(), (a, b) -> a));
+        if (!products.keySet().containsAll(productIdList)) {
+            throw new ProductNotFoundException("One or more products were not found");
+        }
+        final Order order = Order.builder()
+                                 .total(lines.stream()
+                                             .map(op -> products.get(op.getProduct().getProductId())
+                                                                .getPrice()
+                                                                .multiply(BigDecimal.valueOf(op.getProductQuantity())))
+                                             .reduce(BigDecimal.ZERO, BigDecimal::add))
+                                 .build();
+        return lines.stream()
+                    .map(op -> OrderProduct.builder()
+                                           .order(order)
+                                           .product(products.get(op.getProduct().getProductId()))
+                                           .productQuantity(op.getProductQuantity())
+                                           .build())
+                    .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<OrderProduct> priceOrder() throws ProductNotFoundException, InvalidRequestException {
+        return OrderServiceImpl.priceOrder(
+                Order.builder().build(), lines, catalogProducts,
+                productId -> ProductMapper.mapToProduct(catalogProducts.get(productId)));
+    }
+}
@@ -0,0 +1,72 @@
+package rohlik.casares.casestudy.service.impl;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import rohlik.casares.casestudy.BenchmarkApplication;
+import rohlik.casares.casestudy.dto.OrderDto;
+import rohlik.casares.casestudy.service.OrderService;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderServiceBenchmark {
+
+    @Param({"1", "10", "100"})
+    int lineCount;
+
+    ConfigurableApplicationContext context;
+
+    OrderService orderService;
+
+    OrderDto orderDto;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        orderService = context.getBean(OrderService.class);
+        orderDto = BenchmarkApplication.orderOf(lineCount);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class CreatedOrder {
+
+        Long orderId;
+
+        // Per-invocation setup is acceptable here, cancelling takes far longer than the JMH bookkeeping
+        @Setup(Level.Invocation)
+        public void setUp(OrderServiceBenchmark benchmark) throws Exception {
+            orderId = benchmark.orderService.createOrder(benchmark.orderDto).getOrderId();
+        }
+    }
+
+    @Benchmark
+    public OrderDto createOrder() throws Exception {
+        return orderService.createOrder(orderDto);
+    }
+
+    @Benchmark
+    public OrderDto cancelOrder(CreatedOrder createdOrder) throws Exception {
+        return orderService.cancelOrder(createdOrder.orderId);
+    }
+}
@@ -0,0 +1,77 @@
+package rohlik.casares.casestudy.utils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import rohlik.casares.casestudy.dto.OrderDto;
+import rohlik.casares.casestudy.dto.ProductDto;
+import rohlik.casares.casestudy.model.Order;
+import rohlik.casares.casestudy.model.OrderProduct;
+import rohlik.casares.casestudy.model.OrderStatus;
+import rohlik.casares.casestudy.model.Product;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapperBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    int size;
+
+    List<Product> products;
+
+    Order order;
+
+    @Setup
+    public void setUp() {
+        products = IntStream.range(0, size)
+                            .mapToObj(i -> Product.builder()
+                                                  .id((long) i)
+                                                  .name("Product " + i)
+                                                  .price(BigDecimal.valueOf(i, 2))
+                                                  .quantity(i)
+                                                  .build())
+                            .collect(Collectors.toList());
+
+        // Order lines stay at a realistic cart size, only the product list scales with size
+        order = Order.builder()
+                     .id(1L)
+                     .status(OrderStatus.CREATED)
+                     .total(BigDecimal.TEN)
+                     .build();
+        order.setOrderProducts(products.stream()
+                                       .limit(100)
+                                       .map(p -> OrderProduct.builder()
+                                                             .order(order)
+                                                             .product(p)
+                                                             .productQuantity(1)
+                                                             .build())
+                                       .collect(Collectors.toList()));
+    }
+
+    @Benchmark
+    public OrderDto mapToOrderDto() {
+        return OrderMapper.mapToOrderDto(order);
+    }
+
+    @Benchmark
+    public List<ProductDto> mapToProductDtoList() {
+        return ProductMapper.mapToProductDtoList(products);
+    }
+}
@@ -0,0 +1,25 @@
+package rohlik.casares.casestudy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import rohlik.casares.casestudy.id.ConfigurableIdGenerator;
+
+/**
+ * Passes {@code orders.id.*} to the Hibernate id generator of orders and order lines.
+ */
+@Configuration
+public class IdGeneratorConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer idGeneratorCustomizer(
+            @Value("${orders.id.generator:sequence}") String generator,
+            @Value("${orders.id.node:0}") int node
+    ) {
+        return hibernateProperties -> {
+            hibernateProperties.put(ConfigurableIdGenerator.GENERATOR, generator);
+            hibernateProperties.put(ConfigurableIdGenerator.NODE, node);
+        };
+    }
+}
@@ -0,0 +1,42 @@
+package rohlik.casares.casestudy;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import java.util.List;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+@Configuration
+public class MessageConverterConfig {
+
+    public static final String COMPACT_JSON_VALUE = "application/vnd.casestudy.compact+json";
+    public static final String COMPACT_CBOR_VALUE = "application/vnd.casestudy.compact+cbor";
+
+    private static final String COMPACT_SUBTYPE_PREFIX = "vnd.casestudy.compact+";
+
+    // Compact JSON needs no converter of its own, application/*+json is served by the default Jackson one
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(
+            Jackson2ObjectMapperBuilder objectMapperBuilder
+    ) {
+        final MappingJackson2CborHttpMessageConverter converter = new MappingJackson2CborHttpMessageConverter(
+                objectMapperBuilder.factory(new CBORFactory()).build());
+        converter.setSupportedMediaTypes(List.of(MediaType.APPLICATION_CBOR, MediaType.valueOf(COMPACT_CBOR_VALUE)));
+        return converter;
+    }
+
+    public static boolean isCompact(MediaType mediaType) {
+        return mediaType.getSubtype().startsWith(COMPACT_SUBTYPE_PREFIX);
+    }
+
+    /**
+     * The media type a compact one is encoded in, application/json for compact JSON.
+     */
+    public static MediaType toPlain(MediaType mediaType) {
+        return new MediaType(
+                mediaType.getType(), mediaType.getSubtype().substring(COMPACT_SUBTYPE_PREFIX.length()),
+                mediaType.getParameters());
+    }
+}
@@ -1,11 +1,19 @@
 package rohlik.casares.casestudy;
 
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfoHandlerMapping;
 import springfox.documentation.builders.PathSelectors;
 import springfox.documentation.builders.RequestHandlerSelectors;
 import springfox.documentation.spi.DocumentationType;
 import springfox.documentation.spring.web.plugins.Docket;
+import springfox.documentation.spring.web.plugins.WebMvcRequestHandlerProvider;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
 @Configuration
@@ -19,4 +27,31 @@ public class SpringFoxConfig {
                 .paths(PathSelectors.any())
                 .build();
     }
+
+    // Springfox 3 cannot read the path-pattern based mappings registered by the actuator endpoints
+    @Bean
+    public static BeanPostProcessor springfoxHandlerProviderBeanPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof WebMvcRequestHandlerProvider) {
+                    final List<RequestMappingInfoHandlerMapping> handlerMappings = getHandlerMappings(bean);
+                    final List<RequestMappingInfoHandlerMapping> supported =
+                            handlerMappings.stream()
+                                           .filter(mapping -> Objects.isNull(mapping.getPatternParser()))
+                                           .collect(Collectors.toList());
+                    handlerMappings.clear();
+                    handlerMappings.addAll(supported);
+                }
+                return bean;
+            }
+
+            @SuppressWarnings("unchecked")
+            private List<RequestMappingInfoHandlerMapping> getHandlerMappings(Object bean) {
+                final Field field = Objects.requireNonNull(ReflectionUtils.findField(bean.getClass(), "handlerMappings"));
+                ReflectionUtils.makeAccessible(field);
+                return (List<RequestMappingInfoHandlerMapping>) ReflectionUtils.getField(field, bean);
+            }
+        };
+    }
 }
@@ -0,0 +1,129 @@
+package rohlik.casares.casestudy.admission;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Upper bounds of the stock of sold out and low stock products, so orders that cannot be served are rejected before
+ * they touch the database. A bound is the committed stock seen at or below {@code orders.admission.low-stock-threshold}
+ * after a reservation; until the next restock the stock can only go down, so it stays an upper bound.
+ * <p>
+ * Every restock bumps the product's epoch and drops its bound. A bound only counts while its epoch is the one read
+ * before its stock was, so a restock that commits between the read and the record is never lost.
+ */
+@Component
+public class AvailabilityIndex {
+
+    private final Map<Long, Long> restockEpochs = new ConcurrentHashMap<>();
+
+    private final Map<Long, Bound> bounds = new ConcurrentHashMap<>();
+
+    private final int lowStockThreshold;
+
+    public AvailabilityIndex(@Value("${orders.admission.low-stock-threshold:10}") int lowStockThreshold) {
+        this.lowStockThreshold = lowStockThreshold;
+    }
+
+    /**
+     * To be read before the stock that is recorded with it.
+     */
+    public long epoch(Long productId) {
+        return restockEpochs.getOrDefault(productId, 0L);
+    }
+
+    public void record(Long productId, int quantity, long epoch) {
+        if (quantity > lowStockThreshold) {
+            return;
+        }
+        final Bound bound = new Bound(epoch, quantity);
+        // Within one epoch stock only goes down, so the lowest bound of the latest epoch wins
+        bounds.merge(productId, bound, (current, recorded) -> current.epoch > recorded.epoch
+                || current.epoch == recorded.epoch && current.quantity <= recorded.quantity ? current : recorded);
+        if (epoch(productId) != epoch) {
+            bounds.remove(productId, bound);
+        }
+    }
+
+    public void record(Map<Long, Integer> quantities, Map<Long, Long> epochs) {
+        quantities.forEach((productId, quantity) -> record(productId, quantity, epochs.get(productId)));
+    }
+
+    /**
+     * Records the stock once the current transaction commits, or right away outside of one. For stock written by the
+     * current transaction, which is not committed before.
+     */
+    public void recordAfterCommit(Map<Long, Integer> quantities, Map<Long, Long> epochs) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(quantities, epochs);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                record(quantities, epochs);
+            }
+        });
+    }
+
+    /**
+     * The most the product can have in stock, empty if not known.
+     */
+    public OptionalInt availableAtMost(Long productId) {
+        final Bound bound = bounds.get(productId);
+        return Objects.nonNull(bound) && bound.epoch == epoch(productId)
+                ? OptionalInt.of(bound.quantity)
+                : OptionalInt.empty();
+    }
+
+    public boolean isSoldOut(Long productId) {
+        return availableAtMost(productId).orElse(-1) == 0;
+    }
+
+    public void restocked(Collection<Long> productIds) {
+        productIds.forEach(productId -> {
+            restockEpochs.merge(productId, 1L, Long::sum);
+            bounds.remove(productId);
+        });
+    }
+
+    /**
+     * Records the restock once the current transaction commits, or right away outside of one.
+     */
+    public void restockedAfterCommit(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            restocked(productIds);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                restocked(productIds);
+            }
+        });
+    }
+
+    private static final class Bound {
+
+        private final long epoch;
+
+        private final int quantity;
+
+        private Bound(long epoch, int quantity) {
+            this.epoch = epoch;
+            this.quantity = quantity;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package rohlik.casares.casestudy.admission;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalInt;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import rohlik.casares.casestudy.dto.OrderDto;
+import rohlik.casares.casestudy.exception.OrderRejectedException;
+import rohlik.casares.casestudy.exception.ProductSoldOutException;
+import rohlik.casares.casestudy.exception.StockExceededException;
+
+/**
+ * Sits in front of order placement. Orders asking for more than the {@link AvailabilityIndex} allows, sold out
+ * products in particular, are rejected before they take a connection, and at
+ * most {@code orders.admission.max-concurrent} orders are placed at once; callers beyond that wait in arrival order
+ * for up to {@code orders.admission.max-wait} and are rejected after, so queueing in front of the database stays
+ * bounded.
+ */
+@Component
+public class OrderAdmission {
+
+    private final AvailabilityIndex availabilityIndex;
+
+    private final Semaphore permits;
+
+    private final Duration maxWait;
+
+    public OrderAdmission(
+            AvailabilityIndex availabilityIndex,
+            @Value("${orders.admission.max-concurrent:64}") int maxConcurrent,
+            @Value("${orders.admission.max-wait:1s}") Duration maxWait
+    ) {
+        this.availabilityIndex = availabilityIndex;
+        this.permits = maxConcurrent > 0 ? new Semaphore(maxConcurrent, true) : null;
+        this.maxWait = maxWait;
+    }
+
+    public Permit admit(OrderDto orderDto) throws StockExceededException, OrderRejectedException {
+        checkAvailability(orderDto);
+        if (Objects.isNull(permits)) {
+            return () -> {
+            };
+        }
+        try {
+            if (!permits.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new OrderRejectedException(String.format(
+                        "Too many orders in progress, none was admitted within %d ms", maxWait.toMillis()));
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OrderRejectedException("Interrupted while waiting for admission");
+        }
+        return permits::release;
+    }
+
+    private void checkAvailability(OrderDto orderDto) throws StockExceededException {
+        if (Objects.isNull(orderDto.getProducts())) {
+            return;
+        }
+        final Map<Long, Integer> quantities = new LinkedHashMap<>();
+        orderDto.getProducts().forEach(line -> {
+            if (Objects.nonNull(line.getProduct()) && Objects.nonNull(line.getProduct().getProductId())) {
+                quantities.merge(line.getProduct().getProductId(), line.getProductQuantity(), Integer::sum);
+            }
+        });
+
+        final List<Long> soldOutProductIds = new ArrayList<>();
+        final List<Long> exceededProductIds = new ArrayList<>();
+        quantities.forEach((productId, quantity) -> {
+            final OptionalInt available = availabilityIndex.availableAtMost(productId);
+            if (available.isPresent() && available.getAsInt() == 0) {
+                soldOutProductIds.add(productId);
+            }
+            else if (available.isPresent() && available.getAsInt() < quantity) {
+                exceededProductIds.add(productId);
+            }
+        });
+        if (!soldOutProductIds.isEmpty()) {
+            throw new ProductSoldOutException(String.format("Products with ids %s are sold out", soldOutProductIds));
+        }
+        if (!exceededProductIds.isEmpty()) {
+            throw new StockExceededException(String.format(
+                    "Order quantity exceeded stock for the products with ids %s", exceededProductIds));
+        }
+    }
+
+    @FunctionalInterface
+    public interface Permit extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
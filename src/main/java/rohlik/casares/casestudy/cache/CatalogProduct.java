@@ -0,0 +1,16 @@
+package rohlik.casares.casestudy.cache;
+
+import java.math.BigDecimal;
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class CatalogProduct {
+
+    Long id;
+    String name;
+    BigDecimal price;
+    long priceMinor;
+
+}
@@ -0,0 +1,105 @@
+package rohlik.casares.casestudy.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import rohlik.casares.casestudy.repository.ProductRepository;
+import rohlik.casares.casestudy.utils.ProductMapper;
+
+/**
+ * Read-through cache of the rarely changing product fields (name, price). Stock is never cached, it is always
+ * checked against the inventory.
+ * <p>
+ * Loads are not atomic with invalidation: a load may read a row before an update commits and store it after the
+ * update has invalidated it. Invalidations therefore bump a generation, and a load that sees it change while it ran
+ * drops what it stored.
+ */
+@Component
+public class ProductCatalogCache {
+
+    private final Cache<Long, CatalogProduct> cache;
+
+    private final ProductRepository productRepository;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    public ProductCatalogCache(
+            ProductRepository productRepository,
+            MeterRegistry meterRegistry,
+            @Value("${products.catalog-cache.maximum-size:100000}") long maximumSize,
+            @Value("${products.catalog-cache.expire-after-write:PT10M}") Duration expireAfterWrite
+    ) {
+        this.productRepository = productRepository;
+        this.cache = Caffeine.newBuilder()
+                             .maximumSize(maximumSize)
+                             .expireAfterWrite(expireAfterWrite)
+                             .recordStats()
+                             .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "productCatalog");
+    }
+
+    public Map<Long, CatalogProduct> getAll(Collection<Long> productIds) {
+        final Map<Long, CatalogProduct> products = new HashMap<>(cache.getAllPresent(productIds));
+        final Set<Long> missingIds = productIds.stream()
+                                               .filter(productId -> !products.containsKey(productId))
+                                               .collect(Collectors.toSet());
+        if (missingIds.isEmpty()) {
+            return products;
+        }
+
+        final long loadGeneration = generation.get();
+        final Map<Long, CatalogProduct> loaded = load(missingIds);
+        cache.putAll(loaded);
+        if (generation.get() != loadGeneration) {
+            cache.invalidateAll(loaded.keySet());
+        }
+        products.putAll(loaded);
+        return products;
+    }
+
+    /**
+     * Invalidates the products once the current transaction commits, or right away outside of one. Invalidated before
+     * the commit, a concurrent read could load the old row back into the cache.
+     */
+    public void invalidateAfterCommit(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(productIds);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(productIds);
+            }
+        });
+    }
+
+    private void invalidate(Collection<Long> productIds) {
+        // Bumped first, so a load storing its rows after the invalidation below sees the change
+        generation.incrementAndGet();
+        cache.invalidateAll(productIds);
+    }
+
+    private Map<Long, CatalogProduct> load(Collection<Long> productIds) {
+        return productRepository.findAllById(productIds)
+                                .stream()
+                                .map(ProductMapper::mapToCatalogProduct)
+                                .collect(Collectors.toMap(CatalogProduct::getId, Function.identity()));
+    }
+}
@@ -0,0 +1,60 @@
+package rohlik.casares.casestudy.controller;
+
+import java.util.List;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+import rohlik.casares.casestudy.MessageConverterConfig;
+import rohlik.casares.casestudy.dto.OrderDto;
+import rohlik.casares.casestudy.utils.OrderMapper;
+
+/**
+ * Rewrites order responses into the compact shape, lines referencing a deduplicated product table, when the client
+ * asked for one of the compact media types.
+ */
+@ControllerAdvice(assignableTypes = OrderController.class)
+public class CompactResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(
+            Object body,
+            MethodParameter returnType,
+            MediaType selectedContentType,
+            Class<? extends HttpMessageConverter<?>> selectedConverterType,
+            ServerHttpRequest request,
+            ServerHttpResponse response
+    ) {
+        if (!MessageConverterConfig.isCompact(selectedContentType)) {
+            return body;
+        }
+        final ResolvableType bodyType = getDeclaredBodyType(returnType);
+        if (OrderDto.class.isAssignableFrom(bodyType.toClass())) {
+            return OrderMapper.mapToCompactOrderDto((OrderDto) body);
+        }
+        if (List.class.isAssignableFrom(bodyType.toClass())
+                && OrderDto.class.isAssignableFrom(bodyType.as(List.class).getGeneric().toClass())) {
+            @SuppressWarnings("unchecked")
+            final List<OrderDto> orders = (List<OrderDto>) body;
+            return OrderMapper.mapToCompactOrderPageDto(orders);
+        }
+        // No compact shape for this response, so it is labelled with the plain media type it is written in
+        response.getHeaders().setContentType(MessageConverterConfig.toPlain(selectedContentType));
+        return body;
+    }
+
+    private static ResolvableType getDeclaredBodyType(MethodParameter returnType) {
+        final ResolvableType type = ResolvableType.forMethodParameter(returnType);
+        return HttpEntity.class.isAssignableFrom(type.toClass()) ? type.as(HttpEntity.class).getGeneric() : type;
+    }
+}
@@ -1,40 +1,98 @@
 package rohlik.casares.casestudy.controller;
 
+import java.time.Instant;
+import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import rohlik.casares.casestudy.dto.BatchOrderResultDto;
 import rohlik.casares.casestudy.dto.OrderDto;
+import rohlik.casares.casestudy.exception.IdempotencyKeyConflictException;
+import rohlik.casares.casestudy.exception.InvalidRequestException;
 import rohlik.casares.casestudy.exception.OrderNotFoundException;
+import rohlik.casares.casestudy.exception.OrderRejectedException;
 import rohlik.casares.casestudy.exception.OrderServiceException;
 import rohlik.casares.casestudy.exception.OrderStatusOperationException;
+import rohlik.casares.casestudy.exception.ProductSoldOutException;
+import rohlik.casares.casestudy.metrics.OrderMetrics;
+import rohlik.casares.casestudy.metrics.TimedOrderOperation;
+import rohlik.casares.casestudy.model.OrderStatus;
 import rohlik.casares.casestudy.service.OrderService;
 
 @RestController
 @RequestMapping("/api/orders")
 public class OrderController {
 
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String NEXT_AFTER_ID_HEADER = "X-Next-After-Id";
+    public static final String NEXT_AFTER_CREATED_AT_HEADER = "X-Next-After-Created-At";
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
     @Autowired
     OrderService orderService;
 
+    @GetMapping("/{id}")
+    public ResponseEntity<OrderDto> getOrder(@PathVariable("id") Long id) throws OrderNotFoundException {
+        return new ResponseEntity<>(orderService.findOrder(id), HttpStatus.OK);
+    }
+
+    @GetMapping("")
+    public ResponseEntity<List<OrderDto>> getOrders(
+            @RequestParam(value = "status", required = false) OrderStatus status,
+            @RequestParam(value = "from", required = false) Instant from,
+            @RequestParam(value = "to", required = false) Instant to,
+            @RequestParam(value = "afterCreatedAt", required = false) Instant afterCreatedAt,
+            @RequestParam(value = "afterId", required = false) Long afterId,
+            @RequestParam(value = "size", defaultValue = "100") int size
+    ) {
+        final int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        final List<OrderDto> orders = orderService.findOrders(status, from, to, afterCreatedAt, afterId, pageSize);
+
+        final HttpHeaders headers = new HttpHeaders();
+        if (orders.size() == pageSize) {
+            final OrderDto last = orders.get(orders.size() - 1);
+            headers.set(NEXT_AFTER_ID_HEADER, String.valueOf(last.getOrderId()));
+            headers.set(NEXT_AFTER_CREATED_AT_HEADER, String.valueOf(last.getCreatedAt()));
+        }
+        return new ResponseEntity<>(orders, headers, HttpStatus.OK);
+    }
+
     @PostMapping("")
-    public ResponseEntity<OrderDto> createOrder(@RequestBody OrderDto orderDto) throws OrderServiceException {
-        return new ResponseEntity<>(orderService.createOrder(orderDto), HttpStatus.CREATED);
+    @TimedOrderOperation(OrderMetrics.CREATE)
+    public ResponseEntity<OrderDto> createOrder(
+            @RequestBody OrderDto orderDto,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey
+    ) throws OrderServiceException, IdempotencyKeyConflictException {
+        return new ResponseEntity<>(orderService.createOrder(orderDto, idempotencyKey), HttpStatus.CREATED);
+    }
+
+    @PostMapping("/batch")
+    @TimedOrderOperation(OrderMetrics.CREATE_BATCH)
+    public ResponseEntity<List<BatchOrderResultDto>> createOrders(@RequestBody List<OrderDto> orderDtos) {
+        return new ResponseEntity<>(orderService.createOrders(orderDtos), HttpStatus.OK);
     }
 
     @PostMapping("/{id}/cancel")
+    @TimedOrderOperation(OrderMetrics.CANCEL)
     public ResponseEntity<OrderDto> cancelOrder(@PathVariable("id") Long id)
             throws OrderNotFoundException, OrderStatusOperationException {
         return new ResponseEntity<>(orderService.cancelOrder(id), HttpStatus.OK);
     }
 
     @PostMapping("/{id}/pay")
+    @TimedOrderOperation(OrderMetrics.PAY)
     public ResponseEntity<OrderDto> payOrder(@PathVariable("id") Long id)
             throws OrderNotFoundException, OrderStatusOperationException {
         return new ResponseEntity<>(orderService.payOrder(id), HttpStatus.OK);
@@ -50,11 +108,37 @@ public class OrderController {
                 .body(exception.getMessage());
     }
 
+    @ExceptionHandler(IdempotencyKeyConflictException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ResponseEntity<String> handleIdempotencyKeyConflictException(
+            IdempotencyKeyConflictException exception
+    ) {
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body(exception.getMessage());
+    }
+
     @ExceptionHandler(OrderServiceException.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ResponseEntity<String> handleOrderServiceException(
             Exception exception
     ) {
+        if (exception.getCause() instanceof InvalidRequestException) {
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(exception.getCause().getMessage());
+        }
+        if (exception.getCause() instanceof ProductSoldOutException) {
+            return ResponseEntity
+                    .status(HttpStatus.CONFLICT)
+                    .body(exception.getCause().getMessage());
+        }
+        if (exception.getCause() instanceof OrderRejectedException) {
+            return ResponseEntity
+                    .status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(exception.getCause().getMessage());
+        }
         return ResponseEntity
                 .status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(exception.getMessage());
@@ -1,8 +1,20 @@
 package rohlik.casares.casestudy.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Objects;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -12,22 +24,110 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import rohlik.casares.casestudy.dto.ProductDto;
+import rohlik.casares.casestudy.dto.ProductImportResultDto;
+import rohlik.casares.casestudy.dto.StockAdjustmentDto;
+import rohlik.casares.casestudy.exception.InvalidRequestException;
 import rohlik.casares.casestudy.exception.ProductNotFoundException;
+import rohlik.casares.casestudy.exception.StockExceededException;
+import rohlik.casares.casestudy.service.ProductImportService;
 import rohlik.casares.casestudy.service.ProductService;
 
 @RestController
 @RequestMapping("/api/products")
 public class ProductController {
 
+    public static final String NEXT_AFTER_ID_HEADER = "X-Next-After-Id";
+    public static final String TEXT_CSV_VALUE = "text/csv";
+
+    private static final CsvSchema CSV_SCHEMA = CsvSchema.builder()
+                                                         .addColumn("productId")
+                                                         .addColumn("name")
+                                                         .addColumn("quantity")
+                                                         .addColumn("price")
+                                                         .build()
+                                                         .withHeader();
+
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
     @Autowired
     ProductService productService;
 
+    @Autowired
+    ProductImportService productImportService;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    /**
+     * Lists the whole catalog, or one keyset page of it when {@code afterId} or {@code size} is given.
+     */
     @GetMapping("")
-    public ResponseEntity<List<ProductDto>> getProducts() {
-        return new ResponseEntity<>(productService.findAll(), HttpStatus.OK);
+    public ResponseEntity<List<ProductDto>> getProducts(
+            @RequestParam(value = "afterId", required = false) Long afterId,
+            @RequestParam(value = "size", required = false) Integer size
+    ) {
+        if (Objects.isNull(afterId) && Objects.isNull(size)) {
+            return new ResponseEntity<>(productService.findAll(), HttpStatus.OK);
+        }
+        final int pageSize = Objects.isNull(size) ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        final List<ProductDto> products = productService.findPage(afterId, pageSize);
+
+        final HttpHeaders headers = new HttpHeaders();
+        if (products.size() == pageSize) {
+            headers.set(NEXT_AFTER_ID_HEADER, String.valueOf(products.get(products.size() - 1).getProductId()));
+        }
+        return new ResponseEntity<>(products, headers, HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamProducts() {
+        final ObjectWriter writer = objectMapper.writerFor(ProductDto.class);
+        final StreamingResponseBody body = outputStream -> productService.streamAll(product -> {
+            try {
+                outputStream.write(writer.writeValueAsBytes(product));
+                outputStream.write('\n');
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return new ResponseEntity<>(body, HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/export", produces = TEXT_CSV_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        final StreamingResponseBody body = outputStream -> {
+            try (SequenceWriter writer = new CsvMapper().writerFor(ProductDto.class)
+                                                        .with(CSV_SCHEMA)
+                                                        .writeValues(outputStream)) {
+                productService.streamAll(product -> {
+                    try {
+                        writer.write(product);
+                    }
+                    catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return new ResponseEntity<>(body, HttpStatus.OK);
+    }
+
+    @PostMapping(value = "/import", consumes = TEXT_CSV_VALUE)
+    public ResponseEntity<ProductImportResultDto> importCsv(InputStream inputStream) throws IOException {
+        return new ResponseEntity<>(productImportService.importCsv(inputStream), HttpStatus.OK);
+    }
+
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ProductImportResultDto> importNdjson(InputStream inputStream) throws IOException {
+        return new ResponseEntity<>(productImportService.importNdjson(inputStream), HttpStatus.OK);
     }
 
     @PostMapping("")
@@ -41,6 +141,20 @@ public class ProductController {
         return new ResponseEntity<>(productService.updateProduct(id, productDto), HttpStatus.OK);
     }
 
+    @PostMapping("/{id}/stock-adjustments")
+    public ResponseEntity<ProductDto> adjustStock(
+            @PathVariable("id") Long id, @RequestBody StockAdjustmentDto adjustment
+    ) throws ProductNotFoundException, StockExceededException, InvalidRequestException {
+        return new ResponseEntity<>(productService.adjustStock(id, adjustment.getDelta()), HttpStatus.OK);
+    }
+
+    @PostMapping("/stock-adjustments")
+    @ResponseStatus(value = HttpStatus.NO_CONTENT)
+    public void adjustStock(@RequestBody List<StockAdjustmentDto> adjustments)
+            throws ProductNotFoundException, StockExceededException, InvalidRequestException {
+        productService.adjustStock(adjustments);
+    }
+
     @DeleteMapping("/{id}")
     @ResponseStatus(value = HttpStatus.NO_CONTENT)
     public void deleteProduct(@PathVariable("id") Long id) throws ProductNotFoundException {
@@ -57,4 +171,34 @@ public class ProductController {
                 .body(exception.getMessage());
     }
 
+    @ExceptionHandler(InvalidRequestException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ResponseEntity<String> handleInvalidRequestException(
+            InvalidRequestException exception
+    ) {
+        return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body(exception.getMessage());
+    }
+
+    @ExceptionHandler(StockExceededException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ResponseEntity<String> handleStockExceededException(
+            StockExceededException exception
+    ) {
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body(exception.getMessage());
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ResponseEntity<String> handleOptimisticLockingFailureException(
+            OptimisticLockingFailureException exception
+    ) {
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body("Product was modified concurrently, read it again and retry the update");
+    }
+
 }
@@ -0,0 +1,29 @@
+package rohlik.casares.casestudy.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import rohlik.casares.casestudy.model.OrderStatus;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CompactOrderDto {
+
+    private Long orderId;
+    private OrderStatus status;
+    private BigDecimal total;
+    private Instant createdAt;
+    private Instant expiresAt;
+    private List<CompactOrderLineDto> lines;
+    private Map<Long, CompactProductDto> products;
+
+}
@@ -0,0 +1,17 @@
+package rohlik.casares.casestudy.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompactOrderLineDto {
+
+    private Long productId;
+    private Integer quantity;
+
+}
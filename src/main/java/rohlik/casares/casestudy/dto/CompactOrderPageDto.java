@@ -0,0 +1,19 @@
+package rohlik.casares.casestudy.dto;
+
+import java.util.List;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompactOrderPageDto {
+
+    private List<CompactOrderDto> orders;
+    private Map<Long, CompactProductDto> products;
+
+}
@@ -2,6 +2,7 @@ package rohlik.casares.casestudy.dto;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.List;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -20,5 +21,7 @@ public class OrderDto {
     private List<OrderProductDto> products;
     private OrderStatus status;
     private BigDecimal total;
+    private Instant createdAt;
+    private Instant expiresAt;
 
 }
@@ -0,0 +1,21 @@
+package rohlik.casares.casestudy.dto;
+
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import rohlik.casares.casestudy.model.OrderStatus;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderEventDto {
+
+    private Long eventId;
+    private Long orderId;
+    private OrderStatus status;
+    private Instant occurredAt;
+
+}
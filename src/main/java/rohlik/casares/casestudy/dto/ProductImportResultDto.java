@@ -0,0 +1,22 @@
+package rohlik.casares.casestudy.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Builder(toBuilder = true)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ProductImportResultDto {
+
+    private long inserted;
+    private long updated;
+    private long failed;
+    private List<ProductImportErrorDto> errors;
+
+}
@@ -0,0 +1,12 @@
+package rohlik.casares.casestudy.exception;
+
+public class EventPublishException extends Exception {
+
+    public EventPublishException(Exception cause) {
+        super(cause);
+    }
+
+    public EventPublishException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package rohlik.casares.casestudy.exception;
+
+public class IdempotencyKeyConflictException extends Exception {
+
+    public IdempotencyKeyConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package rohlik.casares.casestudy.exception;
+
+/**
+ * The request is missing a required value or has one out of range.
+ */
+public class InvalidRequestException extends Exception {
+
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+}
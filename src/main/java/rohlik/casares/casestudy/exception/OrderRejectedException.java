@@ -0,0 +1,11 @@
+package rohlik.casares.casestudy.exception;
+
+/**
+ * Too many orders are being placed at once; the caller may retry later.
+ */
+public class OrderRejectedException extends Exception {
+
+    public OrderRejectedException(String message) {
+        super(message);
+    }
+}
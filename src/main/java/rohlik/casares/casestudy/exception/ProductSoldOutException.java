@@ -0,0 +1,11 @@
+package rohlik.casares.casestudy.exception;
+
+/**
+ * The order asks for a product whose stock is known to be zero, so it was rejected without touching the database.
+ */
+public class ProductSoldOutException extends StockExceededException {
+
+    public ProductSoldOutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,44 @@
+package rohlik.casares.casestudy.id;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+/**
+ * Sequence generator that hands out {@link SnowflakeIdGenerator} ids instead when {@value #GENERATOR} is set to
+ * {@value #SNOWFLAKE}. The sequence is still declared, so switching back needs no schema change.
+ */
+public class ConfigurableIdGenerator extends SequenceStyleGenerator {
+
+    public static final String GENERATOR = "casestudy.id.generator";
+
+    public static final String NODE = "casestudy.id.node";
+
+    public static final String SEQUENCE = "sequence";
+
+    public static final String SNOWFLAKE = "snowflake";
+
+    private SnowflakeIdGenerator snowflake;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) {
+        super.configure(type, params, serviceRegistry);
+
+        final Map<String, Object> settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+        if (SNOWFLAKE.equals(settings.get(GENERATOR))) {
+            final Object node = settings.get(NODE);
+            snowflake = new SnowflakeIdGenerator(Objects.isNull(node) ? 0 : Integer.parseInt(node.toString()));
+        }
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        return Objects.isNull(snowflake) ? super.generate(session, object) : snowflake.nextId();
+    }
+}
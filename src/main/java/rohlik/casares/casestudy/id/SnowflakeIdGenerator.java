@@ -0,0 +1,60 @@
+package rohlik.casares.casestudy.id;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 64-bit ids made of 41 bits of milliseconds since {@link #EPOCH}, 10 bits of node id and a 12 bit per-millisecond
+ * sequence, so nodes hand out unique, roughly time-ordered ids without asking the database. The timestamp and the
+ * sequence share one {@link AtomicLong} and advance with a CAS loop: no locks and no allocation per id. When the
+ * sequence of a millisecond runs out, or the clock goes backwards, ids keep counting into the following milliseconds
+ * instead of blocking.
+ */
+public class SnowflakeIdGenerator {
+
+    public static final Instant EPOCH = Instant.parse("2022-01-01T00:00:00Z");
+
+    public static final int NODE_BITS = 10;
+
+    public static final int SEQUENCE_BITS = 12;
+
+    public static final int MAX_NODE = (1 << NODE_BITS) - 1;
+
+    private static final long EPOCH_MILLIS = EPOCH.toEpochMilli();
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long node;
+
+    // Milliseconds since the epoch in the high bits, sequence in the low SEQUENCE_BITS bits
+    private final AtomicLong state = new AtomicLong();
+
+    public SnowflakeIdGenerator(int node) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException(String.format("Node id must be between 0 and %d, was %d", MAX_NODE, node));
+        }
+        this.node = node;
+    }
+
+    public long nextId() {
+        long current;
+        long next;
+        do {
+            current = state.get();
+            final long now = System.currentTimeMillis() - EPOCH_MILLIS;
+            next = now > current >>> SEQUENCE_BITS ? now << SEQUENCE_BITS : current + 1;
+        } while (!state.compareAndSet(current, next));
+
+        return (next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS)
+                | node << SEQUENCE_BITS
+                | next & SEQUENCE_MASK;
+    }
+
+    public static int nodeOf(long id) {
+        return (int) (id >>> SEQUENCE_BITS) & MAX_NODE;
+    }
+
+    public static Instant timestampOf(long id) {
+        return Instant.ofEpochMilli((id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS);
+    }
+}
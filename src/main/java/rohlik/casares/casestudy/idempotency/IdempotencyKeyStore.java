@@ -0,0 +1,234 @@
+package rohlik.casares.casestudy.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import rohlik.casares.casestudy.dto.OrderDto;
+import rohlik.casares.casestudy.exception.IdempotencyKeyConflictException;
+import rohlik.casares.casestudy.exception.OrderServiceException;
+import rohlik.casares.casestudy.model.IdempotencyKey;
+import rohlik.casares.casestudy.repository.IdempotencyKeyRepository;
+import rohlik.casares.casestudy.repository.OrderRepository;
+import rohlik.casares.casestudy.utils.OrderMapper;
+
+/**
+ * Remembers the order created for an {@code Idempotency-Key} so that client retries get the original response instead
+ * of creating and reserving a second order. Concurrent duplicates wait for the first request, for up to
+ * {@code orders.idempotency.max-wait}, and get a conflict after. Failed requests are forgotten and can be retried.
+ * <p>
+ * With {@code orders.idempotency.persistent=true} the key is also claimed in the {@code idempotency_keys} table, in the
+ * same transaction as the order, so duplicates are caught across restarts and instances. A claim that loses to
+ * another instance's claim waits, within the same bound, for that instance to store its order.
+ */
+@Slf4j
+@Component
+public class IdempotencyKeyStore {
+
+    private static final Duration STORED_KEY_POLL_INTERVAL = Duration.ofMillis(50);
+
+    private final Cache<String, CompletableFuture<OrderDto>> responses;
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+
+    private final OrderRepository orderRepository;
+
+    private final PlatformTransactionManager transactionManager;
+
+    private final Duration ttl;
+
+    private final Duration maxWait;
+
+    private final boolean persistent;
+
+    public IdempotencyKeyStore(
+            IdempotencyKeyRepository idempotencyKeyRepository,
+            OrderRepository orderRepository,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${orders.idempotency.maximum-size:100000}") long maximumSize,
+            @Value("${orders.idempotency.ttl:PT24H}") Duration ttl,
+            @Value("${orders.idempotency.max-wait:PT5S}") Duration maxWait,
+            @Value("${orders.idempotency.persistent:false}") boolean persistent
+    ) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.orderRepository = orderRepository;
+        this.transactionManager = transactionManager;
+        this.ttl = ttl;
+        this.maxWait = maxWait;
+        this.persistent = persistent;
+        this.responses = Caffeine.newBuilder()
+                                 .maximumSize(maximumSize)
+                                 .expireAfterWrite(ttl)
+                                 .recordStats()
+                                 .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "idempotencyKeys");
+    }
+
+    public OrderDto execute(String key, OrderCreation creation)
+            throws OrderServiceException, IdempotencyKeyConflictException {
+
+        final CompletableFuture<OrderDto> response = new CompletableFuture<>();
+        final CompletableFuture<OrderDto> previous = responses.asMap().putIfAbsent(key, response);
+        if (Objects.nonNull(previous)) {
+            return await(previous);
+        }
+
+        try {
+            final OrderDto order = persistent ? executePersistent(key, creation) : creation.create();
+            response.complete(order);
+            return order;
+        }
+        catch (OrderServiceException | IdempotencyKeyConflictException | RuntimeException e) {
+            responses.asMap().remove(key, response);
+            response.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the order already created for the key, without waiting for a request still in progress.
+     */
+    public Optional<OrderDto> findCreated(String key) throws IdempotencyKeyConflictException {
+        final CompletableFuture<OrderDto> response = responses.asMap().get(key);
+        if (Objects.nonNull(response) && response.isDone() && !response.isCompletedExceptionally()) {
+            return Optional.of(response.join());
+        }
+        if (!persistent) {
+            return Optional.empty();
+        }
+        final Optional<IdempotencyKey> stored = idempotencyKeyRepository.findById(key);
+        if (stored.isEmpty() || Objects.isNull(stored.get().getOrderId())) {
+            return Optional.empty();
+        }
+        return Optional.of(getStoredOrder(stored.get()));
+    }
+
+    @Scheduled(
+            initialDelayString = "${orders.idempotency.purge-interval:PT1H}",
+            fixedDelayString = "${orders.idempotency.purge-interval:PT1H}"
+    )
+    public void purgeExpired() {
+        if (!persistent) {
+            return;
+        }
+        try {
+            idempotencyKeyRepository.deleteCreatedBefore(Instant.now().minus(ttl));
+        }
+        catch (RuntimeException e) {
+            log.warn("Could not purge expired idempotency keys", e);
+        }
+    }
+
+    private OrderDto executePersistent(String key, OrderCreation creation)
+            throws OrderServiceException, IdempotencyKeyConflictException {
+
+        final Optional<IdempotencyKey> stored = idempotencyKeyRepository.findById(key);
+        if (stored.isPresent()) {
+            return getStoredOrder(stored.get());
+        }
+
+        final TransactionStatus transaction = transactionManager.getTransaction(new DefaultTransactionDefinition());
+        try {
+            idempotencyKeyRepository.claim(key, Instant.now());
+            final OrderDto order = creation.create();
+            idempotencyKeyRepository.complete(key, order.getOrderId());
+            transactionManager.commit(transaction);
+            return order;
+        }
+        catch (DataIntegrityViolationException | PessimisticLockingFailureException e) {
+            // Claimed by another instance, which has committed or still holds the row
+            transactionManager.rollback(transaction);
+            return awaitStoredOrder(key);
+        }
+        catch (OrderServiceException | RuntimeException e) {
+            if (!transaction.isCompleted()) {
+                transactionManager.rollback(transaction);
+            }
+            throw e;
+        }
+    }
+
+    private OrderDto getStoredOrder(IdempotencyKey stored) throws IdempotencyKeyConflictException {
+        if (Objects.isNull(stored.getOrderId())) {
+            throw inProgress(stored.getIdempotencyKey());
+        }
+        return orderRepository.findWithLinesById(stored.getOrderId())
+                              .map(OrderMapper::mapToOrderDto)
+                              .orElseThrow(() -> new IdempotencyKeyConflictException(String.format(
+                                      "Order [%d] created for idempotency key [%s] no longer exists",
+                                      stored.getOrderId(), stored.getIdempotencyKey())));
+    }
+
+    private OrderDto awaitStoredOrder(String key) throws IdempotencyKeyConflictException {
+        final long deadline = System.nanoTime() + maxWait.toNanos();
+        while (true) {
+            final Optional<IdempotencyKey> stored = idempotencyKeyRepository.findById(key);
+            if (stored.isPresent()) {
+                return getStoredOrder(stored.get());
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                throw inProgress(key);
+            }
+            try {
+                Thread.sleep(STORED_KEY_POLL_INTERVAL.toMillis());
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw inProgress(key);
+            }
+        }
+    }
+
+    private IdempotencyKeyConflictException inProgress(String key) {
+        return new IdempotencyKeyConflictException(
+                String.format("A request with idempotency key [%s] is still in progress", key));
+    }
+
+    private OrderDto await(CompletableFuture<OrderDto> response)
+            throws OrderServiceException, IdempotencyKeyConflictException {
+        try {
+            return response.get(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        catch (TimeoutException e) {
+            throw new IdempotencyKeyConflictException(String.format(
+                    "A request with the same idempotency key did not finish within %d ms", maxWait.toMillis()));
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OrderServiceException(e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof OrderServiceException) {
+                throw (OrderServiceException) e.getCause();
+            }
+            if (e.getCause() instanceof IdempotencyKeyConflictException) {
+                throw (IdempotencyKeyConflictException) e.getCause();
+            }
+            throw new OrderServiceException(e.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    public interface OrderCreation {
+
+        OrderDto create() throws OrderServiceException;
+    }
+}
@@ -0,0 +1,77 @@
+package rohlik.casares.casestudy.journal;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * After-images of the rows one transaction changed. Applying entries in journal order is idempotent, so replaying
+ * entries the snapshot already contains does no harm.
+ */
+@Builder(toBuilder = true)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalEntry {
+
+    private List<ProductImage> products;
+
+    private List<Long> deletedProductIds;
+
+    private List<OrderImage> orders;
+
+    @Builder
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ProductImage {
+
+        private Long id;
+
+        private String name;
+
+        private Integer quantity;
+
+        private BigDecimal price;
+
+        private long version;
+    }
+
+    @Builder
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class OrderImage {
+
+        private Long id;
+
+        private int status;
+
+        private BigDecimal total;
+
+        private Instant createdAt;
+
+        private Instant expiresAt;
+
+        private long version;
+
+        private List<OrderLineImage> lines;
+    }
+
+    @Builder
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class OrderLineImage {
+
+        private Long id;
+
+        private Long productId;
+
+        private Integer quantity;
+    }
+}
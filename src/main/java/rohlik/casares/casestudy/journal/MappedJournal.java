@@ -0,0 +1,303 @@
+package rohlik.casares.casestudy.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only log of records in memory-mapped segment files. Appending only copies the record into the mapping; one
+ * flusher thread forces the mapping to disk and acknowledges every record appended before it started, so concurrent
+ * writers share one fsync (group commit).
+ * <p>
+ * A record is its payload length, the CRC32 of the payload, its log sequence number (LSN) and the payload. Reading
+ * stops at the first record that is incomplete, fails its checksum or breaks the LSN sequence.
+ */
+@Slf4j
+class MappedJournal implements Closeable {
+
+    private static final int HEADER_BYTES = Integer.BYTES + Integer.BYTES + Long.BYTES;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition appended = lock.newCondition();
+
+    private final Condition forced = lock.newCondition();
+
+    private final Thread flusher;
+
+    private FileChannel channel;
+
+    private MappedByteBuffer segment;
+
+    private long nextLsn;
+
+    private long durableLsn;
+
+    private long forceCount;
+
+    private RuntimeException failure;
+
+    private boolean closed;
+
+    MappedJournal(Path directory, int segmentSize, long nextLsn) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.nextLsn = nextLsn;
+        this.durableLsn = nextLsn - 1;
+        // Segments starting past the recovered end hold no valid record
+        for (Path path : listSegments(directory)) {
+            if (startLsnOf(path) >= nextLsn) {
+                Files.delete(path);
+            }
+        }
+        openSegment(segmentSize);
+        this.flusher = new Thread(this::flushLoop, "journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Copies the record into the current segment and returns its LSN. It is durable once {@link #awaitDurable}
+     * returns for that LSN.
+     */
+    long append(byte[] payload) throws IOException {
+        final CRC32 crc = new CRC32();
+        crc.update(payload);
+        lock.lock();
+        try {
+            checkUsable();
+            final int recordSize = HEADER_BYTES + payload.length;
+            if (segment.remaining() < recordSize) {
+                // Everything before the new segment is forced here, so the flusher only ever forces the current one
+                segment.force();
+                channel.close();
+                openSegment(Math.max(segmentSize, recordSize));
+            }
+            final long lsn = nextLsn++;
+            segment.putInt(payload.length)
+                   .putInt((int) crc.getValue())
+                   .putLong(lsn)
+                   .put(payload);
+            appended.signal();
+            return lsn;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    void awaitDurable(long lsn) throws IOException {
+        lock.lock();
+        try {
+            while (durableLsn < lsn) {
+                checkUsable();
+                forced.awaitUninterruptibly();
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    long lastLsn() {
+        lock.lock();
+        try {
+            return nextLsn - 1;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    long getForceCount() {
+        lock.lock();
+        try {
+            return forceCount;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the segments that only hold records up to the given LSN. The current segment is always kept.
+     */
+    void truncate(long lsn) throws IOException {
+        final List<Path> segments = listSegments(directory);
+        for (int i = 0; i < segments.size() - 1; i++) {
+            if (startLsnOf(segments.get(i + 1)) <= lsn + 1) {
+                Files.delete(segments.get(i));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            appended.signal();
+        }
+        finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    /**
+     * Passes the payload of every valid record after {@code afterLsn} to the consumer and returns the LSN of the last
+     * valid record, or {@code afterLsn} if there is none.
+     */
+    static long read(Path directory, long afterLsn, Consumer<byte[]> consumer) throws IOException {
+        long lastLsn = afterLsn;
+        long expectedLsn = -1;
+        for (Path path : listSegments(directory)) {
+            final long startLsn = startLsnOf(path);
+            if (expectedLsn >= 0 && startLsn != expectedLsn) {
+                log.warn("Journal segment {} does not continue at LSN {}, ignoring the rest", path, expectedLsn);
+                break;
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                expectedLsn = startLsn;
+                while (buffer.remaining() >= HEADER_BYTES) {
+                    final int length = buffer.getInt();
+                    final int checksum = buffer.getInt();
+                    final long lsn = buffer.getLong();
+                    if (length <= 0 || length > buffer.remaining() || lsn != expectedLsn) {
+                        break;
+                    }
+                    final byte[] payload = new byte[length];
+                    buffer.get(payload);
+                    final CRC32 crc = new CRC32();
+                    crc.update(payload);
+                    if ((int) crc.getValue() != checksum) {
+                        log.warn("Journal record {} in {} is corrupt, ignoring the rest of the segment", lsn, path);
+                        break;
+                    }
+                    if (lsn > afterLsn) {
+                        consumer.accept(payload);
+                        lastLsn = lsn;
+                    }
+                    expectedLsn++;
+                }
+            }
+        }
+        return lastLsn;
+    }
+
+    private void flushLoop() {
+        while (true) {
+            final MappedByteBuffer toForce;
+            final long target;
+            lock.lock();
+            try {
+                while (durableLsn == nextLsn - 1 && !closed) {
+                    appended.awaitUninterruptibly();
+                }
+                if (durableLsn == nextLsn - 1) {
+                    return;
+                }
+                toForce = segment;
+                target = nextLsn - 1;
+            }
+            finally {
+                lock.unlock();
+            }
+
+            RuntimeException error = null;
+            try {
+                toForce.force();
+            }
+            catch (RuntimeException e) {
+                error = e;
+            }
+
+            lock.lock();
+            try {
+                if (Objects.isNull(error)) {
+                    durableLsn = target;
+                    forceCount++;
+                }
+                else {
+                    log.error("Could not force the journal to disk, no further changes will be committed", error);
+                    failure = error;
+                }
+                forced.signalAll();
+                if (Objects.nonNull(failure)) {
+                    return;
+                }
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void checkUsable() throws IOException {
+        if (Objects.nonNull(failure)) {
+            throw new IOException("Journal failed to force", failure);
+        }
+        if (closed) {
+            throw new IOException("Journal is closed");
+        }
+    }
+
+    private void openSegment(int size) throws IOException {
+        final Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, nextLsn, SEGMENT_SUFFIX));
+        channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private static List<Path> listSegments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                            final String name = path.getFileName().toString();
+                            return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                        })
+                        .sorted()
+                        .collect(Collectors.toList());
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static long startLsnOf(Path segment) {
+        final String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
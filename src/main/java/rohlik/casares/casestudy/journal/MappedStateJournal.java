@@ -0,0 +1,296 @@
+package rohlik.casares.casestudy.journal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Makes the in-memory database durable without writing it to disk. Every transaction that records changes appends the
+ * after-images of the changed rows to a {@link MappedJournal} just before it commits and waits until the record is
+ * forced; if that fails, the transaction rolls back. Snapshots of all products and orders are written periodically
+ * and let the journal drop the segments they cover.
+ * <p>
+ * On startup the latest snapshot replaces the seeded data and the journal is replayed on top of it. Only products,
+ * orders and order lines are journaled: the outbox, idempotency keys and in-memory expiry timers are not restored.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "journal.enabled", havingValue = "true")
+public class MappedStateJournal implements StateJournal, SmartInitializingSingleton {
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+
+    private static final String SNAPSHOT_SUFFIX = ".ndjson";
+
+    private static final int SNAPSHOT_CHUNK_SIZE = 500;
+
+    // Held shared from the append of a record until its transaction completed, so a snapshot starts after every
+    // journaled change up to its LSN is visible
+    private final ReadWriteLock commitLock = new ReentrantReadWriteLock();
+
+    private final AtomicLong appendCount = new AtomicLong();
+
+    private final ObjectWriter writer;
+
+    private final ObjectReader reader;
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private MappedJournal journal;
+
+    @Autowired
+    private StateImages stateImages;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${inventory.mode:database}")
+    private String inventoryMode;
+
+    public MappedStateJournal(
+            ObjectMapper objectMapper,
+            @Value("${journal.directory:journal}") Path directory,
+            @Value("${journal.segment-size:64MB}") DataSize segmentSize
+    ) {
+        this.writer = objectMapper.writerFor(JournalEntry.class);
+        this.reader = objectMapper.readerFor(JournalEntry.class);
+        this.directory = directory;
+        this.segmentSize = Math.toIntExact(segmentSize.toBytes());
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if ("ledger".equals(inventoryMode) || "combining".equals(inventoryMode)) {
+            throw new IllegalStateException(
+                    "journal.enabled cannot be combined with inventory.mode=" + inventoryMode);
+        }
+        try {
+            Files.createDirectories(directory);
+            final long startedAt = System.nanoTime();
+            final Path snapshot = findSnapshots().stream().reduce((first, second) -> second).orElse(null);
+            final long snapshotLsn = Objects.isNull(snapshot) ? 0 : lsnOf(snapshot);
+            final long lastLsn = transactionTemplate.execute(status -> recover(snapshot, snapshotLsn));
+            journal = new MappedJournal(directory, segmentSize, lastLsn + 1);
+            log.info("Recovered journal up to LSN {} ({} records after snapshot) in {} ms",
+                    lastLsn, lastLsn - snapshotLsn, (System.nanoTime() - startedAt) / 1_000_000);
+            if (Objects.isNull(snapshot) || lastLsn > snapshotLsn) {
+                snapshot();
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        FunctionCounter.builder("journal.appends", appendCount, AtomicLong::get)
+                       .description("Records appended to the journal")
+                       .register(meterRegistry);
+        FunctionCounter.builder("journal.forces", journal, MappedJournal::getForceCount)
+                       .description("Forces of the journal to disk, each one commits a group of records")
+                       .register(meterRegistry);
+    }
+
+    @Override
+    public void recordProducts(Collection<Long> productIds) {
+        pendingChanges().productIds.addAll(productIds);
+    }
+
+    @Override
+    public void recordOrders(Collection<Long> orderIds) {
+        pendingChanges().orderIds.addAll(orderIds);
+    }
+
+    /**
+     * Writes all products and orders to a new snapshot file and deletes the older snapshots and the journal segments
+     * the new one covers.
+     */
+    @Scheduled(
+            initialDelayString = "${journal.snapshot-interval:PT5M}",
+            fixedDelayString = "${journal.snapshot-interval:PT5M}"
+    )
+    public synchronized void snapshot() {
+        final long lsn;
+        commitLock.writeLock().lock();
+        try {
+            lsn = journal.lastLsn();
+        }
+        finally {
+            commitLock.writeLock().unlock();
+        }
+
+        final Path temporary = directory.resolve(SNAPSHOT_PREFIX + "tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                final OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel));
+                transactionTemplate.executeWithoutResult(status -> stateImages.export(SNAPSHOT_CHUNK_SIZE, entry -> {
+                    try {
+                        out.write(writer.writeValueAsBytes(entry));
+                        out.write('\n');
+                    }
+                    catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temporary, snapshotPath(lsn), StandardCopyOption.ATOMIC_MOVE);
+            for (Path older : findSnapshots()) {
+                if (lsnOf(older) < lsn) {
+                    Files.delete(older);
+                }
+            }
+            journal.truncate(lsn);
+        }
+        catch (IOException | UncheckedIOException e) {
+            log.warn("Could not write a journal snapshot, the journal is kept", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (Objects.nonNull(journal)) {
+            journal.close();
+        }
+    }
+
+    private long recover(Path snapshot, long snapshotLsn) {
+        try {
+            if (Objects.nonNull(snapshot)) {
+                stateImages.clear();
+                try (BufferedReader lines = Files.newBufferedReader(snapshot, StandardCharsets.UTF_8)) {
+                    for (String line = lines.readLine(); Objects.nonNull(line); line = lines.readLine()) {
+                        stateImages.apply(reader.readValue(line));
+                    }
+                }
+            }
+            final long lastLsn = MappedJournal.read(directory, snapshotLsn, payload -> {
+                try {
+                    stateImages.apply(reader.readValue(payload));
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            stateImages.restartIdGenerators();
+            return lastLsn;
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private PendingChanges pendingChanges() {
+        PendingChanges pendingChanges = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (Objects.isNull(pendingChanges)) {
+            if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+                throw new IllegalStateException("Journaled changes must be recorded inside a transaction");
+            }
+            pendingChanges = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(this, pendingChanges);
+            TransactionSynchronizationManager.registerSynchronization(pendingChanges);
+        }
+        return pendingChanges;
+    }
+
+    private List<Path> findSnapshots() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                            final String name = path.getFileName().toString();
+                            return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+                        })
+                        .sorted()
+                        .collect(Collectors.toList());
+        }
+    }
+
+    private Path snapshotPath(long lsn) {
+        return directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, lsn, SNAPSHOT_SUFFIX));
+    }
+
+    private static long lsnOf(Path snapshot) {
+        final String name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+    }
+
+    private class PendingChanges implements TransactionSynchronization {
+
+        private final Set<Long> productIds = new HashSet<>();
+
+        private final Set<Long> orderIds = new HashSet<>();
+
+        private boolean holdsCommitLock;
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            // Writes still queued in the persistence context have to be in the rows that are journaled
+            entityManager.flush();
+            final JournalEntry entry = stateImages.read(productIds, orderIds);
+            try {
+                final byte[] payload = writer.writeValueAsBytes(entry);
+                commitLock.readLock().lock();
+                holdsCommitLock = true;
+                final long lsn = journal.append(payload);
+                appendCount.incrementAndGet();
+                journal.awaitDurable(lsn);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(MappedStateJournal.this);
+            if (holdsCommitLock) {
+                commitLock.readLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package rohlik.casares.casestudy.journal;
+
+import java.util.Collection;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(name = "journal.enabled", havingValue = "false", matchIfMissing = true)
+public class NoOpStateJournal implements StateJournal {
+
+    @Override
+    public void recordProducts(Collection<Long> productIds) {
+    }
+
+    @Override
+    public void recordOrders(Collection<Long> orderIds) {
+    }
+}
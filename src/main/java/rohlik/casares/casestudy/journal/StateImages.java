@@ -0,0 +1,231 @@
+package rohlik.casares.casestudy.journal;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import rohlik.casares.casestudy.journal.JournalEntry.OrderImage;
+import rohlik.casares.casestudy.journal.JournalEntry.OrderLineImage;
+import rohlik.casares.casestudy.journal.JournalEntry.ProductImage;
+
+/**
+ * Reads and writes the rows the journal covers with plain JDBC: products, orders and order lines.
+ */
+@Component
+public class StateImages {
+
+    private static final String SELECT_PRODUCTS =
+            "SELECT id, name, quantity, price, version FROM products WHERE id IN (:ids)";
+
+    private static final String SELECT_ORDERS =
+            "SELECT id, status, total, created_at, expires_at, version FROM orders WHERE id IN (:ids)";
+
+    private static final String SELECT_LINES =
+            "SELECT id, order_id, product_id, quantity FROM order_products WHERE order_id IN (:ids) ORDER BY id";
+
+    private static final String SELECT_PRODUCT_PAGE =
+            "SELECT id, name, quantity, price, version FROM products WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String SELECT_ORDER_PAGE =
+            "SELECT id, status, total, created_at, expires_at, version FROM orders WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String MERGE_PRODUCT =
+            "MERGE INTO products (id, name, quantity, price, version) KEY (id) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String MERGE_ORDER =
+            "MERGE INTO orders (id, status, total, created_at, expires_at, version) KEY (id) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String MERGE_LINE =
+            "MERGE INTO order_products (id, order_id, product_id, quantity) KEY (id) VALUES (?, ?, ?, ?)";
+
+    private static final String DELETE_PRODUCT = "DELETE FROM products WHERE id = ?";
+
+    // Pooled sequences hand out the increment below the value they return, so they restart a full block higher
+    private static final int SEQUENCE_INCREMENT = 50;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public JournalEntry read(Collection<Long> productIds, Collection<Long> orderIds) {
+        final List<OrderImage> orders = findOrders(orderIds);
+        final Set<Long> allProductIds = new HashSet<>(productIds);
+        orders.forEach(order -> order.getLines().forEach(line -> allProductIds.add(line.getProductId())));
+
+        final List<ProductImage> products = allProductIds.isEmpty()
+                ? List.of()
+                : namedParameterJdbcTemplate.query(
+                        SELECT_PRODUCTS, new MapSqlParameterSource("ids", allProductIds), StateImages::mapProduct);
+        products.forEach(product -> allProductIds.remove(product.getId()));
+        return JournalEntry.builder()
+                           .products(products)
+                           .deletedProductIds(new ArrayList<>(allProductIds))
+                           .orders(orders)
+                           .build();
+    }
+
+    /**
+     * Streams every product and then every order in chunks of at most {@code chunkSize} rows, products first so that
+     * the entries can be applied in the same order.
+     */
+    public void export(int chunkSize, Consumer<JournalEntry> consumer) {
+        long lastId = 0;
+        List<ProductImage> products;
+        do {
+            products = jdbcTemplate.query(SELECT_PRODUCT_PAGE, StateImages::mapProduct, lastId, chunkSize);
+            if (!products.isEmpty()) {
+                consumer.accept(JournalEntry.builder().products(products).build());
+                lastId = products.get(products.size() - 1).getId();
+            }
+        } while (products.size() == chunkSize);
+
+        lastId = 0;
+        List<OrderImage> orders;
+        do {
+            orders = jdbcTemplate.query(SELECT_ORDER_PAGE, StateImages::mapOrder, lastId, chunkSize);
+            if (!orders.isEmpty()) {
+                attachLines(orders);
+                consumer.accept(JournalEntry.builder().orders(orders).build());
+                lastId = orders.get(orders.size() - 1).getId();
+            }
+        } while (orders.size() == chunkSize);
+    }
+
+    public void apply(JournalEntry entry) {
+        if (Objects.nonNull(entry.getProducts()) && !entry.getProducts().isEmpty()) {
+            jdbcTemplate.batchUpdate(MERGE_PRODUCT, entry.getProducts()
+                                                         .stream()
+                                                         .map(p -> new Object[]{
+                                                                 p.getId(), p.getName(), p.getQuantity(),
+                                                                 p.getPrice(), p.getVersion()
+                                                         })
+                                                         .collect(Collectors.toList()));
+        }
+        if (Objects.nonNull(entry.getOrders()) && !entry.getOrders().isEmpty()) {
+            jdbcTemplate.batchUpdate(MERGE_ORDER, entry.getOrders()
+                                                       .stream()
+                                                       .map(o -> new Object[]{
+                                                               o.getId(), o.getStatus(), o.getTotal(),
+                                                               toTimestamp(o.getCreatedAt()),
+                                                               toTimestamp(o.getExpiresAt()),
+                                                               o.getVersion()
+                                                       })
+                                                       .collect(Collectors.toList()));
+            jdbcTemplate.batchUpdate(MERGE_LINE, entry.getOrders()
+                                                      .stream()
+                                                      .flatMap(o -> o.getLines()
+                                                                     .stream()
+                                                                     .map(l -> new Object[]{
+                                                                             l.getId(), o.getId(), l.getProductId(),
+                                                                             l.getQuantity()
+                                                                     }))
+                                                      .collect(Collectors.toList()));
+        }
+        if (Objects.nonNull(entry.getDeletedProductIds()) && !entry.getDeletedProductIds().isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_PRODUCT, entry.getDeletedProductIds()
+                                                          .stream()
+                                                          .map(id -> new Object[]{id})
+                                                          .collect(Collectors.toList()));
+        }
+    }
+
+    public void clear() {
+        jdbcTemplate.update("DELETE FROM order_products");
+        jdbcTemplate.update("DELETE FROM orders");
+        jdbcTemplate.update("DELETE FROM products");
+    }
+
+    /**
+     * Moves the id generators past the ids that were written with explicit values.
+     */
+    public void restartIdGenerators() {
+        jdbcTemplate.execute(String.format(
+                "ALTER TABLE products ALTER COLUMN id RESTART WITH %d", maxId("products") + 1));
+        jdbcTemplate.execute(String.format(
+                "ALTER SEQUENCE order_seq RESTART WITH %d", maxId("orders") + SEQUENCE_INCREMENT + 1));
+        jdbcTemplate.execute(String.format(
+                "ALTER SEQUENCE order_product_seq RESTART WITH %d", maxId("order_products") + SEQUENCE_INCREMENT + 1));
+    }
+
+    private long maxId(String table) {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+    }
+
+    private List<OrderImage> findOrders(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return List.of();
+        }
+        final List<OrderImage> orders = namedParameterJdbcTemplate.query(
+                SELECT_ORDERS, new MapSqlParameterSource("ids", orderIds), StateImages::mapOrder);
+        attachLines(orders);
+        return orders;
+    }
+
+    private void attachLines(List<OrderImage> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        final Map<Long, List<OrderLineImage>> lines = new HashMap<>();
+        orders.forEach(order -> {
+            order.setLines(new ArrayList<>());
+            lines.put(order.getId(), order.getLines());
+        });
+        namedParameterJdbcTemplate.query(
+                SELECT_LINES,
+                new MapSqlParameterSource("ids", lines.keySet()),
+                rs -> {
+                    lines.get(rs.getLong("order_id")).add(OrderLineImage.builder()
+                                                                        .id(rs.getLong("id"))
+                                                                        .productId(rs.getLong("product_id"))
+                                                                        .quantity(rs.getInt("quantity"))
+                                                                        .build());
+                }
+        );
+    }
+
+    private static ProductImage mapProduct(ResultSet rs, int rowNum) throws SQLException {
+        return ProductImage.builder()
+                           .id(rs.getLong("id"))
+                           .name(rs.getString("name"))
+                           .quantity(rs.getInt("quantity"))
+                           .price(rs.getBigDecimal("price"))
+                           .version(rs.getLong("version"))
+                           .build();
+    }
+
+    private static OrderImage mapOrder(ResultSet rs, int rowNum) throws SQLException {
+        return OrderImage.builder()
+                         .id(rs.getLong("id"))
+                         .status(rs.getInt("status"))
+                         .total(rs.getBigDecimal("total"))
+                         .createdAt(toInstant(rs.getTimestamp("created_at")))
+                         .expiresAt(toInstant(rs.getTimestamp("expires_at")))
+                         .version(rs.getLong("version"))
+                         .build();
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return Objects.isNull(timestamp) ? null : timestamp.toInstant();
+    }
+
+    private static Timestamp toTimestamp(Instant instant) {
+        return Objects.isNull(instant) ? null : Timestamp.from(instant);
+    }
+}
@@ -0,0 +1,19 @@
+package rohlik.casares.casestudy.journal;
+
+import java.util.Collection;
+
+public interface StateJournal {
+
+    /**
+     * Journals the state of the given products, as of the commit of the current transaction. Products that no longer
+     * exist at commit are journaled as deleted.
+     */
+    void recordProducts(Collection<Long> productIds);
+
+    /**
+     * Journals the state of the given orders, their lines and the products of those lines, as of the commit of the
+     * current transaction.
+     */
+    void recordOrders(Collection<Long> orderIds);
+
+}
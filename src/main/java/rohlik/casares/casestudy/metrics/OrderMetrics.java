@@ -0,0 +1,104 @@
+package rohlik.casares.casestudy.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Objects;
+import org.springframework.stereotype.Component;
+import rohlik.casares.casestudy.exception.IdempotencyKeyConflictException;
+import rohlik.casares.casestudy.exception.InvalidRequestException;
+import rohlik.casares.casestudy.exception.OrderNotFoundException;
+import rohlik.casares.casestudy.exception.OrderRejectedException;
+import rohlik.casares.casestudy.exception.OrderServiceException;
+import rohlik.casares.casestudy.exception.OrderStatusOperationException;
+import rohlik.casares.casestudy.exception.ProductNotFoundException;
+import rohlik.casares.casestudy.exception.ProductSoldOutException;
+import rohlik.casares.casestudy.exception.StockExceededException;
+import rohlik.casares.casestudy.scheduler.OrderExpiryScheduler;
+
+/**
+ * Latency and outcome of the order lifecycle operations, optimistic lock conflicts and retries, plus the number of
+ * armed expiry timers. Timers are capped at {@code orders.expiry.max-pending}, so that gauge is not the number of
+ * CREATED orders waiting to expire.
+ */
+@Component
+public class OrderMetrics {
+
+    public static final String CREATE = "create";
+    public static final String CREATE_BATCH = "create_batch";
+    public static final String PAY = "pay";
+    public static final String CANCEL = "cancel";
+
+    private static final String OUTCOME_SUCCESS = "success";
+
+    private final MeterRegistry meterRegistry;
+
+    public OrderMetrics(MeterRegistry meterRegistry, OrderExpiryScheduler orderExpiryScheduler) {
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("orders.expiry.armed", orderExpiryScheduler, OrderExpiryScheduler::getPendingCount)
+             .description("Created orders with an armed expiry timer, at most orders.expiry.max-pending")
+             .register(meterRegistry);
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    public void success(Timer.Sample sample, String operation) {
+        sample.stop(timer(operation, OUTCOME_SUCCESS));
+    }
+
+    public void failure(Timer.Sample sample, String operation, Exception exception) {
+        final String outcome = getOutcome(exception);
+        sample.stop(timer(operation, outcome));
+        meterRegistry.counter("orders.failures", "operation", operation, "reason", outcome).increment();
+    }
+
+    public void conflict(String operation) {
+        meterRegistry.counter("orders.lock.conflicts", "operation", operation).increment();
+    }
+
+    public void retry(String operation) {
+        meterRegistry.counter("orders.lock.retries", "operation", operation).increment();
+    }
+
+    private Timer timer(String operation, String outcome) {
+        return Timer.builder("orders.requests")
+                    .description("Order lifecycle operations")
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+    }
+
+    private static String getOutcome(Exception exception) {
+        final Throwable cause = exception instanceof OrderServiceException && Objects.nonNull(exception.getCause())
+                ? exception.getCause()
+                : exception;
+        if (cause instanceof ProductSoldOutException) {
+            return "sold_out";
+        }
+        if (cause instanceof OrderRejectedException) {
+            return "rejected";
+        }
+        if (cause instanceof StockExceededException) {
+            return "stock_exceeded";
+        }
+        if (cause instanceof ProductNotFoundException) {
+            return "product_not_found";
+        }
+        if (cause instanceof InvalidRequestException) {
+            return "invalid_request";
+        }
+        if (cause instanceof OrderNotFoundException) {
+            return "order_not_found";
+        }
+        if (cause instanceof OrderStatusOperationException) {
+            return "invalid_status";
+        }
+        if (cause instanceof IdempotencyKeyConflictException) {
+            return "idempotency_conflict";
+        }
+        return "error";
+    }
+}
@@ -0,0 +1,36 @@
+package rohlik.casares.casestudy.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Times the methods annotated with {@link TimedOrderOperation}. Applied to the controller handlers so that the
+ * transaction commit is included.
+ */
+@Aspect
+@Component
+public class OrderMetricsAspect {
+
+    private final OrderMetrics orderMetrics;
+
+    public OrderMetricsAspect(OrderMetrics orderMetrics) {
+        this.orderMetrics = orderMetrics;
+    }
+
+    @Around("@annotation(operation)")
+    public Object record(ProceedingJoinPoint joinPoint, TimedOrderOperation operation) throws Throwable {
+        final Timer.Sample sample = orderMetrics.start();
+        try {
+            final Object result = joinPoint.proceed();
+            orderMetrics.success(sample, operation.value());
+            return result;
+        }
+        catch (Exception e) {
+            orderMetrics.failure(sample, operation.value(), e);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package rohlik.casares.casestudy.metrics;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Records the annotated handler in {@link OrderMetrics} under the given operation, with the outcome taken from the
+ * exception it throws.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface TimedOrderOperation {
+
+    String value();
+}
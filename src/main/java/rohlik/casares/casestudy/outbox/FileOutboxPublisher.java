@@ -0,0 +1,53 @@
+package rohlik.casares.casestudy.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import rohlik.casares.casestudy.dto.OrderEventDto;
+import rohlik.casares.casestudy.exception.EventPublishException;
+
+/**
+ * Appends every batch to an NDJSON file and forces it to disk before the batch counts as published.
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.publisher", havingValue = "file")
+public class FileOutboxPublisher implements OutboxPublisher {
+
+    private final ObjectWriter writer;
+
+    private final Path path;
+
+    public FileOutboxPublisher(ObjectMapper objectMapper, @Value("${outbox.file.path:order-events.ndjson}") Path path) {
+        this.writer = objectMapper.writerFor(OrderEventDto.class);
+        this.path = path;
+    }
+
+    @Override
+    public void publish(List<OrderEventDto> events) throws EventPublishException {
+        try (FileChannel channel = FileChannel.open(
+                path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            final ByteArrayOutputStream batch = new ByteArrayOutputStream();
+            for (OrderEventDto event : events) {
+                batch.write(writer.writeValueAsBytes(event));
+                batch.write('\n');
+            }
+            final ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        catch (IOException e) {
+            throw new EventPublishException(e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package rohlik.casares.casestudy.outbox;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import rohlik.casares.casestudy.model.OrderStatus;
+import rohlik.casares.casestudy.model.OutboxEvent;
+import rohlik.casares.casestudy.repository.OutboxEventRepository;
+
+/**
+ * Records order status changes in the outbox table. Must be called from the transaction that changes the status, so
+ * the event is stored if and only if the change is committed.
+ */
+@Component
+public class OrderOutbox {
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(Long orderId, OrderStatus status) {
+        outboxEventRepository.save(event(orderId, status, Instant.now()));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void appendAll(Collection<Long> orderIds, OrderStatus status) {
+        final Instant now = Instant.now();
+        outboxEventRepository.saveAll(orderIds.stream()
+                                              .map(orderId -> event(orderId, status, now))
+                                              .collect(Collectors.toList()));
+    }
+
+    private static OutboxEvent event(Long orderId, OrderStatus status, Instant createdAt) {
+        return OutboxEvent.builder()
+                          .orderId(orderId)
+                          .status(status)
+                          .createdAt(createdAt)
+                          .build();
+    }
+}
@@ -0,0 +1,15 @@
+package rohlik.casares.casestudy.outbox;
+
+import java.util.List;
+import rohlik.casares.casestudy.dto.OrderEventDto;
+import rohlik.casares.casestudy.exception.EventPublishException;
+
+public interface OutboxPublisher {
+
+    /**
+     * Publishes the events in the given order. On failure the whole batch is retried later, so an event may be
+     * delivered more than once; consumers can deduplicate by event id.
+     */
+    void publish(List<OrderEventDto> events) throws EventPublishException;
+
+}
@@ -0,0 +1,65 @@
+package rohlik.casares.casestudy.outbox;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import rohlik.casares.casestudy.exception.EventPublishException;
+import rohlik.casares.casestudy.model.OutboxEvent;
+import rohlik.casares.casestudy.repository.OutboxEventRepository;
+import rohlik.casares.casestudy.utils.OrderMapper;
+
+/**
+ * Drains the outbox by order, each order's events in the order they were written. A batch is deleted only after it
+ * was published, and a failed batch stops the run, so events of one order are never delivered out of order. Ordering
+ * holds only per order: events of different orders may be delivered in any order. Expects a single relay per
+ * database.
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private OutboxPublisher outboxPublisher;
+
+    @Value("${outbox.relay.batch-size:500}")
+    private int batchSize;
+
+    @Scheduled(
+            initialDelayString = "${outbox.relay.interval:PT1S}",
+            fixedDelayString = "${outbox.relay.interval:PT1S}"
+    )
+    public void relay() {
+        try {
+            int relayed;
+            do {
+                relayed = relayBatch();
+            } while (relayed == batchSize);
+        }
+        catch (EventPublishException | RuntimeException e) {
+            log.warn("Could not relay order events, they will be retried", e);
+        }
+    }
+
+    private int relayBatch() throws EventPublishException {
+        final List<OutboxEvent> events = outboxEventRepository.findAllByOrderByOrderIdAscCreatedAtAscIdAsc(
+                PageRequest.of(0, batchSize));
+        if (events.isEmpty()) {
+            return 0;
+        }
+        outboxPublisher.publish(events.stream()
+                                      .map(OrderMapper::mapToOrderEventDto)
+                                      .collect(Collectors.toList()));
+        outboxEventRepository.deleteAllByIdInBatch(events.stream()
+                                                         .map(OutboxEvent::getId)
+                                                         .collect(Collectors.toList()));
+        return events.size();
+    }
+}
@@ -0,0 +1,39 @@
+package rohlik.casares.casestudy.outbox;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import rohlik.casares.casestudy.dto.OrderEventDto;
+import rohlik.casares.casestudy.exception.EventPublishException;
+
+/**
+ * In-process stand-in for a broker. When the queue is full the batch is rejected and stays in the outbox.
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.publisher", havingValue = "queue", matchIfMissing = true)
+public class QueueOutboxPublisher implements OutboxPublisher {
+
+    private final BlockingQueue<OrderEventDto> queue;
+
+    public QueueOutboxPublisher(@Value("${outbox.queue.capacity:10000}") int capacity) {
+        this.queue = new LinkedBlockingQueue<>(capacity);
+    }
+
+    @Override
+    public void publish(List<OrderEventDto> events) throws EventPublishException {
+        if (queue.remainingCapacity() < events.size()) {
+            throw new EventPublishException(String.format(
+                    "Event queue cannot take %d events, %d slots left", events.size(), queue.remainingCapacity()));
+        }
+        queue.addAll(events);
+    }
+
+    public OrderEventDto poll(Duration timeout) throws InterruptedException {
+        return queue.poll(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,27 @@
+package rohlik.casares.casestudy.repository;
+
+import java.time.Instant;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import rohlik.casares.casestudy.model.IdempotencyKey;
+
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+
+    // A plain insert, save() would merge into a row another request has just claimed
+    @Modifying
+    @Query(value = "insert into idempotency_keys (idempotency_key, created_at) values (:key, :createdAt)",
+            nativeQuery = true)
+    void claim(@Param("key") String key, @Param("createdAt") Instant createdAt);
+
+    @Modifying
+    @Query("update IdempotencyKey k set k.orderId = :orderId where k.idempotencyKey = :key")
+    void complete(@Param("key") String key, @Param("orderId") Long orderId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotencyKey k where k.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") Instant before);
+}
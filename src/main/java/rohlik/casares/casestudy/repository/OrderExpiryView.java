@@ -0,0 +1,10 @@
+package rohlik.casares.casestudy.repository;
+
+import java.time.Instant;
+
+public interface OrderExpiryView {
+
+    Long getId();
+
+    Instant getExpiresAt();
+}
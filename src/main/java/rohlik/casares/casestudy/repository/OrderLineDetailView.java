@@ -0,0 +1,16 @@
+package rohlik.casares.casestudy.repository;
+
+import java.math.BigDecimal;
+
+public interface OrderLineDetailView {
+
+    Long getOrderId();
+
+    Long getProductId();
+
+    String getProductName();
+
+    BigDecimal getProductPrice();
+
+    Integer getQuantity();
+}
@@ -0,0 +1,10 @@
+package rohlik.casares.casestudy.repository;
+
+public interface OrderLineView {
+
+    Long getOrderId();
+
+    Long getProductId();
+
+    Integer getQuantity();
+}
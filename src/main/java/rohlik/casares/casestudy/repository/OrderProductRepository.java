@@ -1,7 +1,21 @@
 package rohlik.casares.casestudy.repository;
 
+import java.util.Collection;
+import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import rohlik.casares.casestudy.model.OrderProduct;
 
 public interface OrderProductRepository  extends JpaRepository<OrderProduct, Long> {
+
+    @Query("select op.order.id as orderId, op.product.id as productId, op.productQuantity as quantity "
+            + "from OrderProduct op where op.order.id in :orderIds")
+    List<OrderLineView> findLinesByOrderIds(@Param("orderIds") Collection<Long> orderIds);
+
+    @Query("select op.order.id as orderId, p.id as productId, p.name as productName, p.price as productPrice, "
+            + "op.productQuantity as quantity "
+            + "from OrderProduct op join op.product p where op.order.id in :orderIds order by op.id")
+    List<OrderLineDetailView> findLineDetailsByOrderIds(@Param("orderIds") Collection<Long> orderIds);
+
 }
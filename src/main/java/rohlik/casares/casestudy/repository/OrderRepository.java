@@ -1,8 +1,43 @@
 package rohlik.casares.casestudy.repository;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import rohlik.casares.casestudy.model.Order;
+import rohlik.casares.casestudy.model.OrderStatus;
 
-public interface OrderRepository  extends JpaRepository<Order, Long> {
+public interface OrderRepository  extends JpaRepository<Order, Long>, OrderRepositoryCustom {
+
+    @EntityGraph(attributePaths = {"orderProducts", "orderProducts.product"})
+    Optional<Order> findWithLinesById(Long id);
+
+    @Query("select new rohlik.casares.casestudy.repository.OrderSummary(o.id, o.status, o.total, o.createdAt, o.expiresAt) "
+            + "from Order o where o.id = :id")
+    Optional<OrderSummary> findSummaryById(@Param("id") Long id);
+
+    @Query("select o.id as id, o.expiresAt as expiresAt from Order o "
+            + "where o.status = :status and o.expiresAt < :before order by o.expiresAt")
+    List<OrderExpiryView> findExpiringBefore(
+            @Param("status") OrderStatus status, @Param("before") Instant before, Pageable pageable);
+
+    /**
+     * Like {@link #findExpiringBefore}, ordered by (expiresAt, id) and starting after the given keyset position.
+     */
+    @Query("select o.id as id, o.expiresAt as expiresAt from Order o "
+            + "where o.status = :status and o.expiresAt < :before "
+            + "and (o.expiresAt > :afterExpiresAt or (o.expiresAt = :afterExpiresAt and o.id > :afterId)) "
+            + "order by o.expiresAt, o.id")
+    List<OrderExpiryView> findExpiringBeforeAfter(
+            @Param("status") OrderStatus status,
+            @Param("before") Instant before,
+            @Param("afterExpiresAt") Instant afterExpiresAt,
+            @Param("afterId") Long afterId,
+            Pageable pageable
+    );
 
 }
@@ -0,0 +1,24 @@
+package rohlik.casares.casestudy.repository;
+
+import java.time.Instant;
+import java.util.List;
+import rohlik.casares.casestudy.model.OrderStatus;
+
+public interface OrderRepositoryCustom {
+
+    List<Long> updateStatuses(List<Long> orderIds, OrderStatus from, OrderStatus to);
+
+    /**
+     * Moves the order to the given status if it is still at the given version. Returns false if it was changed in the
+     * meantime.
+     */
+    boolean updateStatus(Long orderId, Long version, OrderStatus to);
+
+    /**
+     * Orders created in [from, to) ordered by (createdAt, id), starting after the given keyset position. Every filter
+     * is optional.
+     */
+    List<OrderSummary> findSummaries(
+            OrderStatus status, Instant from, Instant to, Instant afterCreatedAt, Long afterId, int limit);
+
+}
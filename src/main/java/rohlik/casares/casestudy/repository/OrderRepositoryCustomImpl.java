@@ -0,0 +1,95 @@
+package rohlik.casares.casestudy.repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import rohlik.casares.casestudy.model.OrderStatus;
+
+public class OrderRepositoryCustomImpl implements OrderRepositoryCustom {
+
+    private static final String UPDATE_STATUS = "UPDATE orders SET status = ?, version = version + 1 WHERE id = ? AND status = ?";
+
+    private static final String UPDATE_VERSIONED_STATUS =
+            "UPDATE orders SET status = ?, version = version + 1 WHERE id = ? AND version = ?";
+
+    private static final String SELECT_SUMMARIES = "SELECT id, status, total, created_at, expires_at FROM orders";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Override
+    public List<Long> updateStatuses(List<Long> orderIds, OrderStatus from, OrderStatus to) {
+        if (orderIds.isEmpty()) {
+            return orderIds;
+        }
+        final List<Object[]> batchArgs = orderIds.stream()
+                                                 .map(id -> new Object[]{to.ordinal(), id, from.ordinal()})
+                                                 .collect(Collectors.toList());
+        final int[] updated = jdbcTemplate.batchUpdate(UPDATE_STATUS, batchArgs);
+
+        final List<Long> updatedIds = new ArrayList<>(orderIds.size());
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] > 0) {
+                updatedIds.add(orderIds.get(i));
+            }
+        }
+        return updatedIds;
+    }
+
+    @Override
+    public boolean updateStatus(Long orderId, Long version, OrderStatus to) {
+        return jdbcTemplate.update(UPDATE_VERSIONED_STATUS, to.ordinal(), orderId, version) > 0;
+    }
+
+    @Override
+    public List<OrderSummary> findSummaries(
+            OrderStatus status, Instant from, Instant to, Instant afterCreatedAt, Long afterId, int limit
+    ) {
+        final List<String> conditions = new ArrayList<>();
+        final MapSqlParameterSource parameters = new MapSqlParameterSource("limit", limit);
+        if (Objects.nonNull(status)) {
+            conditions.add("status = :status");
+            parameters.addValue("status", status.ordinal());
+        }
+        if (Objects.nonNull(from)) {
+            conditions.add("created_at >= :from");
+            parameters.addValue("from", Timestamp.from(from));
+        }
+        if (Objects.nonNull(to)) {
+            conditions.add("created_at < :to");
+            parameters.addValue("to", Timestamp.from(to));
+        }
+        if (Objects.nonNull(afterCreatedAt) && Objects.nonNull(afterId)) {
+            conditions.add("(created_at > :afterCreatedAt OR (created_at = :afterCreatedAt AND id > :afterId))");
+            parameters.addValue("afterCreatedAt", Timestamp.from(afterCreatedAt));
+            parameters.addValue("afterId", afterId);
+        }
+
+        final String where = conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+        return namedParameterJdbcTemplate.query(
+                SELECT_SUMMARIES + where + " ORDER BY created_at, id LIMIT :limit",
+                parameters,
+                (rs, rowNum) -> new OrderSummary(
+                        rs.getLong("id"),
+                        OrderStatus.values()[rs.getInt("status")],
+                        rs.getBigDecimal("total"),
+                        toInstant(rs.getTimestamp("created_at")),
+                        toInstant(rs.getTimestamp("expires_at"))
+                )
+        );
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return Objects.isNull(timestamp) ? null : timestamp.toInstant();
+    }
+}
@@ -0,0 +1,16 @@
+package rohlik.casares.casestudy.repository;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import lombok.Value;
+import rohlik.casares.casestudy.model.OrderStatus;
+
+@Value
+public class OrderSummary {
+
+    Long id;
+    OrderStatus status;
+    BigDecimal total;
+    Instant createdAt;
+    Instant expiresAt;
+}
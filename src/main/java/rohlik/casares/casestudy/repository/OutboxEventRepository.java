@@ -0,0 +1,16 @@
+package rohlik.casares.casestudy.repository;
+
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import rohlik.casares.casestudy.model.OutboxEvent;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Events of one order in the order they were written. Ids alone do not give that order, instances draw ids from
+     * the pooled sequence in interleaving blocks.
+     */
+    List<OutboxEvent> findAllByOrderByOrderIdAscCreatedAtAscIdAsc(Pageable pageable);
+
+}
@@ -0,0 +1,36 @@
+package rohlik.casares.casestudy.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import rohlik.casares.casestudy.model.OrderProduct;
+import rohlik.casares.casestudy.model.Product;
+
+public interface ProductRepositoryCustom {
+
+    List<OrderProduct> reserveQuantities(List<OrderProduct> orderProducts);
+
+    void addQuantities(Map<Long, Integer> quantities);
+
+    /**
+     * Adds the signed deltas in one batch, skipping products whose quantity would go below zero. Returns the ids of
+     * the products that were not adjusted, either for that reason or because they do not exist.
+     */
+    List<Long> adjustQuantities(Map<Long, Integer> deltas);
+
+    /**
+     * Updates the name and price of the given products in one batch, leaving their quantity untouched. Returns the
+     * ids of the products that do not exist.
+     */
+    List<Long> updateCatalog(List<Product> products);
+
+    /**
+     * Inserts the products in one batch and returns their generated ids, in the order of the list.
+     */
+    List<Long> insertProducts(List<Product> products);
+
+    Map<Long, Integer> findQuantities(Collection<Long> productIds);
+
+    Map<Long, Integer> findAllQuantities();
+
+}
@@ -0,0 +1,168 @@
+package rohlik.casares.casestudy.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import rohlik.casares.casestudy.model.OrderProduct;
+import rohlik.casares.casestudy.model.Product;
+
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+
+    private static final String RESERVE_QUANTITY =
+            "UPDATE products SET quantity = quantity - ?, version = version + 1 WHERE id = ? AND quantity >= ?";
+
+    private static final String ADD_QUANTITY = "UPDATE products SET quantity = quantity + ?, version = version + 1 WHERE id = ?";
+
+    private static final String ADJUST_QUANTITY =
+            "UPDATE products SET quantity = quantity + ?, version = version + 1 WHERE id = ? AND quantity + ? >= 0";
+
+    private static final String UPDATE_CATALOG =
+            "UPDATE products SET name = ?, price = ?, version = version + 1 WHERE id = ?";
+
+    private static final String INSERT_PRODUCT =
+            "INSERT INTO products (name, quantity, price, version) VALUES (?, ?, ?, 0)";
+
+    private static final String SELECT_QUANTITIES = "SELECT id, quantity FROM products WHERE id IN (:ids)";
+
+    private static final String SELECT_ALL_QUANTITIES = "SELECT id, quantity FROM products";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Override
+    public List<OrderProduct> reserveQuantities(List<OrderProduct> orderProducts) {
+        if (orderProducts.isEmpty()) {
+            return List.of();
+        }
+        final List<Object[]> batchArgs = orderProducts.stream()
+                                                      .map(op -> new Object[]{
+                                                              op.getProductQuantity(),
+                                                              op.getProduct().getId(),
+                                                              op.getProductQuantity()
+                                                      })
+                                                      .collect(Collectors.toList());
+        final int[] updated = jdbcTemplate.batchUpdate(RESERVE_QUANTITY, batchArgs);
+
+        final List<OrderProduct> notReserved = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                notReserved.add(orderProducts.get(i));
+            }
+        }
+        return notReserved;
+    }
+
+    @Override
+    public void addQuantities(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        final List<Object[]> batchArgs = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, quantity) -> batchArgs.add(new Object[]{quantity, productId}));
+        jdbcTemplate.batchUpdate(ADD_QUANTITY, batchArgs);
+    }
+
+    @Override
+    public List<Long> adjustQuantities(Map<Long, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return List.of();
+        }
+        final List<Long> productIds = new ArrayList<>(deltas.size());
+        final List<Object[]> batchArgs = new ArrayList<>(deltas.size());
+        deltas.forEach((productId, delta) -> {
+            productIds.add(productId);
+            batchArgs.add(new Object[]{delta, productId, delta});
+        });
+        final int[] updated = jdbcTemplate.batchUpdate(ADJUST_QUANTITY, batchArgs);
+
+        final List<Long> notAdjusted = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                notAdjusted.add(productIds.get(i));
+            }
+        }
+        return notAdjusted;
+    }
+
+    @Override
+    public List<Long> updateCatalog(List<Product> products) {
+        if (products.isEmpty()) {
+            return List.of();
+        }
+        final List<Object[]> batchArgs = products.stream()
+                                                 .map(p -> new Object[]{p.getName(), p.getPrice(), p.getId()})
+                                                 .collect(Collectors.toList());
+        final int[] updated = jdbcTemplate.batchUpdate(UPDATE_CATALOG, batchArgs);
+
+        final List<Long> notUpdated = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                notUpdated.add(products.get(i).getId());
+            }
+        }
+        return notUpdated;
+    }
+
+    @Override
+    public List<Long> insertProducts(List<Product> products) {
+        if (products.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.execute((ConnectionCallback<List<Long>>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_PRODUCT, new String[]{"id"})) {
+                for (Product product : products) {
+                    statement.setString(1, product.getName());
+                    statement.setObject(2, product.getQuantity());
+                    statement.setBigDecimal(3, product.getPrice());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                final List<Long> ids = new ArrayList<>(products.size());
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        ids.add(keys.getLong(1));
+                    }
+                }
+                return ids;
+            }
+        });
+    }
+
+    @Override
+    public Map<Long, Integer> findQuantities(Collection<Long> productIds) {
+        final Map<Long, Integer> quantities = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return quantities;
+        }
+        namedParameterJdbcTemplate.query(
+                SELECT_QUANTITIES,
+                new MapSqlParameterSource("ids", productIds),
+                rs -> {
+                    quantities.put(rs.getLong("id"), rs.getInt("quantity"));
+                }
+        );
+        return quantities;
+    }
+
+    @Override
+    public Map<Long, Integer> findAllQuantities() {
+        final Map<Long, Integer> quantities = new HashMap<>();
+        jdbcTemplate.query(SELECT_ALL_QUANTITIES, rs -> {
+            quantities.put(rs.getLong("id"), rs.getInt("quantity"));
+        });
+        return quantities;
+    }
+}
@@ -0,0 +1,99 @@
+package rohlik.casares.casestudy.scheduler;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import rohlik.casares.casestudy.journal.StateJournal;
+import rohlik.casares.casestudy.model.OrderStatus;
+import rohlik.casares.casestudy.outbox.OrderOutbox;
+import rohlik.casares.casestudy.repository.OrderExpiryView;
+import rohlik.casares.casestudy.repository.OrderLineView;
+import rohlik.casares.casestudy.repository.OrderProductRepository;
+import rohlik.casares.casestudy.repository.OrderRepository;
+import rohlik.casares.casestudy.service.InventoryService;
+
+/**
+ * Cancels expired CREATED orders in pages. For every page the status change is one JDBC batch, and the stock of
+ * all cancelled orders is aggregated per product and restored with one more batch.
+ */
+@Slf4j
+@Component
+public class ExpiredOrderSweeper {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderProductRepository orderProductRepository;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private OrderExpiryScheduler orderExpiryScheduler;
+
+    @Autowired
+    private OrderOutbox orderOutbox;
+
+    @Autowired
+    private StateJournal stateJournal;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${orders.sweeper.page-size:500}")
+    private int pageSize;
+
+    @Scheduled(
+            initialDelayString = "${orders.sweeper.interval:PT30S}",
+            fixedDelayString = "${orders.sweeper.interval:PT30S}"
+    )
+    public void sweep() {
+        try {
+            final Instant now = Instant.now();
+            int swept;
+            do {
+                swept = transactionTemplate.execute(status -> sweepPage(now));
+            } while (swept == pageSize);
+        }
+        catch (RuntimeException e) {
+            log.warn("Could not sweep expired orders", e);
+        }
+    }
+
+    private int sweepPage(Instant now) {
+        final List<Long> expiredIds = orderRepository.findExpiringBefore(
+                                                             OrderStatus.CREATED, now, PageRequest.of(0, pageSize))
+                                                     .stream()
+                                                     .map(OrderExpiryView::getId)
+                                                     .collect(Collectors.toList());
+        if (expiredIds.isEmpty()) {
+            return 0;
+        }
+
+        final List<Long> cancelledIds = orderRepository.updateStatuses(
+                expiredIds, OrderStatus.CREATED, OrderStatus.CANCELLED);
+        if (!cancelledIds.isEmpty()) {
+            final Map<Long, Integer> quantitiesToRestore = orderProductRepository.findLinesByOrderIds(cancelledIds)
+                                                                                 .stream()
+                                                                                 .collect(Collectors.toMap(
+                                                                                         OrderLineView::getProductId,
+                                                                                         OrderLineView::getQuantity,
+                                                                                         Integer::sum
+                                                                                 ));
+            inventoryService.release(quantitiesToRestore);
+            orderOutbox.appendAll(cancelledIds, OrderStatus.CANCELLED);
+            stateJournal.recordOrders(cancelledIds);
+            cancelledIds.forEach(orderExpiryScheduler::unschedule);
+        }
+        return expiredIds.size();
+    }
+}
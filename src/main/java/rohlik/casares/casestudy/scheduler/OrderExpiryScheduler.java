@@ -0,0 +1,162 @@
+package rohlik.casares.casestudy.scheduler;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import rohlik.casares.casestudy.exception.OrderNotFoundException;
+import rohlik.casares.casestudy.exception.OrderStatusOperationException;
+import rohlik.casares.casestudy.model.OrderStatus;
+import rohlik.casares.casestudy.repository.OrderExpiryView;
+import rohlik.casares.casestudy.repository.OrderRepository;
+import rohlik.casares.casestudy.service.OrderService;
+
+/**
+ * Cancels CREATED orders once their {@code expiresAt} deadline passes.
+ * <p>
+ * Timers live in a delay queue served by a fixed pool of workers, and at most {@code orders.expiry.max-pending}
+ * of them are kept in memory. Orders that do not fit are armed later by the periodic scan, once their deadline
+ * is closer than {@code orders.expiry.scan-interval}. The same scan re-arms pending orders after a restart.
+ */
+@Slf4j
+@Component
+public class OrderExpiryScheduler {
+
+    private static final int SCAN_PAGE_SIZE = 1000;
+
+    private final Map<Long, ScheduledFuture<?>> pendingExpiries = new ConcurrentHashMap<>();
+
+    private final ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Lazy
+    @Autowired
+    private OrderService orderService;
+
+    @Value("${orders.expiry.timeout:30m}")
+    private Duration timeout;
+
+    @Value("${orders.expiry.pool-size:2}")
+    private int poolSize;
+
+    @Value("${orders.expiry.max-pending:100000}")
+    private int maxPending;
+
+    @Value("${orders.expiry.scan-interval:1m}")
+    private Duration scanInterval;
+
+    @PostConstruct
+    public void start() {
+        taskScheduler.setPoolSize(poolSize);
+        taskScheduler.setThreadNamePrefix("order-expiry-");
+        taskScheduler.setRemoveOnCancelPolicy(true);
+        taskScheduler.initialize();
+    }
+
+    @PreDestroy
+    public void stop() {
+        taskScheduler.shutdown();
+        pendingExpiries.clear();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverPendingExpiries() {
+        scheduleExpiringBefore(Instant.now().plus(timeout).plus(scanInterval));
+        taskScheduler.scheduleWithFixedDelay(
+                () -> scheduleExpiringBefore(Instant.now().plus(scanInterval)),
+                Instant.now().plus(scanInterval),
+                scanInterval
+        );
+    }
+
+    public Instant expiresAt(Instant createdAt) {
+        return createdAt.plus(timeout);
+    }
+
+    public void schedule(Long orderId, Instant expiresAt) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    arm(orderId, expiresAt);
+                }
+            });
+            return;
+        }
+        arm(orderId, expiresAt);
+    }
+
+    public void unschedule(Long orderId) {
+        final ScheduledFuture<?> expiry = pendingExpiries.remove(orderId);
+        if (Objects.nonNull(expiry)) {
+            expiry.cancel(false);
+        }
+    }
+
+    public int getPendingCount() {
+        return pendingExpiries.size();
+    }
+
+    private void arm(Long orderId, Instant expiresAt) {
+        if (Objects.isNull(expiresAt) || pendingExpiries.size() >= maxPending) {
+            return;
+        }
+        pendingExpiries.computeIfAbsent(orderId, id -> taskScheduler.schedule(() -> expire(id), expiresAt));
+    }
+
+    /**
+     * Arms the CREATED orders expiring before the given instant, as many as fit. Pages by keyset, so orders that are
+     * already armed are read once per scan and never take the place of those that are not.
+     */
+    private void scheduleExpiringBefore(Instant before) {
+        Instant afterExpiresAt = Instant.EPOCH;
+        Long afterId = 0L;
+        try {
+            while (pendingExpiries.size() < maxPending) {
+                final List<OrderExpiryView> expiring = orderRepository.findExpiringBeforeAfter(
+                        OrderStatus.CREATED, before, afterExpiresAt, afterId, PageRequest.of(0, SCAN_PAGE_SIZE));
+                expiring.forEach(order -> arm(order.getId(), order.getExpiresAt()));
+                if (expiring.size() < SCAN_PAGE_SIZE) {
+                    return;
+                }
+                final OrderExpiryView last = expiring.get(expiring.size() - 1);
+                afterExpiresAt = last.getExpiresAt();
+                afterId = last.getId();
+            }
+        }
+        catch (RuntimeException e) {
+            log.warn("Could not scan for expiring orders", e);
+        }
+    }
+
+    private void expire(Long orderId) {
+        pendingExpiries.remove(orderId);
+        try {
+            orderService.cancelOrder(orderId);
+        }
+        catch (OrderNotFoundException | OrderStatusOperationException e) {
+            log.debug("Order [{}] was not cancelled on expiry: {}", orderId, e.getMessage());
+        }
+        catch (RuntimeException e) {
+            log.warn("Could not cancel expired order [{}]", orderId, e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package rohlik.casares.casestudy.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import rohlik.casares.casestudy.model.OrderProduct;
+
+public interface InventoryService {
+
+    /**
+     * Reserves the quantity of every line, or of none of them. Returns the stock available to each product that could
+     * not be reserved, empty if all were. Reservations made inside a transaction are undone if it rolls back.
+     */
+    Map<Long, Integer> reserve(List<OrderProduct> orderProducts);
+
+    void release(Map<Long, Integer> quantities);
+
+    /**
+     * Applies signed stock deltas to every product, or to none of them. Returns the ids of the products that do not
+     * exist or whose quantity would go below zero.
+     */
+    List<Long> adjust(Map<Long, Integer> deltas);
+
+    Map<Long, Integer> getQuantities(Collection<Long> productIds);
+
+    void onStockReset(Long productId, Integer quantity);
+
+    void onProductDeleted(Long productId);
+
+}
@@ -1,15 +1,34 @@
 package rohlik.casares.casestudy.service;
 
 
+import java.time.Instant;
+import java.util.List;
+import rohlik.casares.casestudy.dto.BatchOrderResultDto;
 import rohlik.casares.casestudy.dto.OrderDto;
+import rohlik.casares.casestudy.exception.IdempotencyKeyConflictException;
 import rohlik.casares.casestudy.exception.OrderNotFoundException;
 import rohlik.casares.casestudy.exception.OrderServiceException;
 import rohlik.casares.casestudy.exception.OrderStatusOperationException;
+import rohlik.casares.casestudy.model.OrderStatus;
 
 public interface OrderService {
 
     OrderDto createOrder(OrderDto orderDto) throws OrderServiceException;
 
+    /**
+     * Creates the order once per idempotency key, later calls with the same key get the original order back. A null
+     * key creates the order unconditionally.
+     */
+    OrderDto createOrder(OrderDto orderDto, String idempotencyKey)
+            throws OrderServiceException, IdempotencyKeyConflictException;
+
+    List<BatchOrderResultDto> createOrders(List<OrderDto> orderDtos);
+
+    OrderDto findOrder(Long orderId) throws OrderNotFoundException;
+
+    List<OrderDto> findOrders(
+            OrderStatus status, Instant from, Instant to, Instant afterCreatedAt, Long afterId, int size);
+
     OrderDto cancelOrder(Long orderId) throws OrderNotFoundException, OrderStatusOperationException;
 
     OrderDto payOrder(Long orderId) throws OrderNotFoundException, OrderStatusOperationException;
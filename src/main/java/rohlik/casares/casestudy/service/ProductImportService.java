@@ -0,0 +1,21 @@
+package rohlik.casares.casestudy.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import rohlik.casares.casestudy.dto.ProductImportResultDto;
+
+public interface ProductImportService {
+
+    /**
+     * Imports a CSV upload whose first line names the columns ({@code productId,name,quantity,price}). Rows with a
+     * {@code productId} update the catalog fields of that product, rows without one insert a new product.
+     */
+    ProductImportResultDto importCsv(InputStream inputStream) throws IOException;
+
+    /**
+     * Imports one {@link rohlik.casares.casestudy.dto.ProductDto} JSON object per line, with the same rules as
+     * {@link #importCsv}.
+     */
+    ProductImportResultDto importNdjson(InputStream inputStream) throws IOException;
+
+}
@@ -1,18 +1,38 @@
 package rohlik.casares.casestudy.service;
 
 import java.util.List;
+import java.util.function.Consumer;
 import rohlik.casares.casestudy.dto.ProductDto;
+import rohlik.casares.casestudy.dto.StockAdjustmentDto;
+import rohlik.casares.casestudy.exception.InvalidRequestException;
 import rohlik.casares.casestudy.exception.ProductNotFoundException;
+import rohlik.casares.casestudy.exception.StockExceededException;
 
 public interface ProductService {
 
     ProductDto createProduct(ProductDto productDto);
 
+    /**
+     * Updates the catalog fields of the product. The quantity is left untouched, stock only changes through
+     * {@link #adjustStock}.
+     */
     ProductDto updateProduct(Long id, ProductDto productDto) throws ProductNotFoundException;
 
+    ProductDto adjustStock(Long productId, Integer delta)
+            throws ProductNotFoundException, StockExceededException, InvalidRequestException;
+
+    /**
+     * Applies all adjustments or none of them. Adjustments of the same product are summed.
+     */
+    void adjustStock(List<StockAdjustmentDto> adjustments)
+            throws ProductNotFoundException, StockExceededException, InvalidRequestException;
+
     void deleteProduct(Long productId) throws ProductNotFoundException;
 
     List<ProductDto> findAll();
 
+    List<ProductDto> findPage(Long afterId, int size);
+
+    void streamAll(Consumer<ProductDto> consumer);
 
 }
@@ -0,0 +1,281 @@
+package rohlik.casares.casestudy.service.impl;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import rohlik.casares.casestudy.admission.AvailabilityIndex;
+import rohlik.casares.casestudy.model.OrderProduct;
+
+/**
+ * Funnels the reservations of every product through a lane with a single writer. The writer takes what is queued for
+ * the product, locks the row once, grants the requests in arrival order while stock lasts and writes their sum with
+ * one update, so a hot product costs one short transaction per batch instead of a row lock held by every order
+ * transaction until it commits. Releases and adjustments are written by the caller's transaction as in database mode.
+ * <p>
+ * The writers have a connection pool of their own: the order transactions waiting for their lanes already hold
+ * connections of the main pool, and a writer waiting behind them for one would never be served.
+ * <p>
+ * Reservations commit before the order does and are given back if it rolls back. Stock reserved by an order whose
+ * process dies before the order commits is not given back.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "inventory.mode", havingValue = "combining")
+public class CombiningInventoryServiceImpl extends DatabaseInventoryServiceImpl {
+
+    private static final String LOCK_QUANTITY = "SELECT quantity FROM products WHERE id = ? FOR UPDATE";
+
+    private static final String ADD_QUANTITY =
+            "UPDATE products SET quantity = quantity + ?, version = version + 1 WHERE id = ?";
+
+    private final Map<Long, Lane> lanes = new ConcurrentHashMap<>();
+
+    private final ExecutorService writers;
+
+    private final int maxBatchSize;
+
+    private final DistributionSummary batchSizes;
+
+    private final HikariDataSource writerDataSource;
+
+    private final JdbcTemplate writerJdbcTemplate;
+
+    private final TransactionTemplate writerTransactionTemplate;
+
+    @Autowired
+    private AvailabilityIndex availabilityIndex;
+
+    public CombiningInventoryServiceImpl(
+            MeterRegistry meterRegistry,
+            DataSourceProperties dataSourceProperties,
+            @Value("${inventory.combining.writer-threads:4}") int writerThreads,
+            @Value("${inventory.combining.max-batch-size:1000}") int maxBatchSize
+    ) {
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.writers = Executors.newFixedThreadPool(writerThreads, runnable -> {
+            final Thread thread = new Thread(runnable, "stock-writer-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maxBatchSize = maxBatchSize;
+        this.batchSizes = DistributionSummary.builder("inventory.combining.batch.size")
+                                             .description("Stock requests written per product transaction")
+                                             .register(meterRegistry);
+        this.writerDataSource = dataSourceProperties.initializeDataSourceBuilder()
+                                                    .type(HikariDataSource.class)
+                                                    .build();
+        this.writerDataSource.setPoolName("stock-writers");
+        this.writerDataSource.setMaximumPoolSize(writerThreads);
+        this.writerDataSource.setMinimumIdle(0);
+        this.writerJdbcTemplate = new JdbcTemplate(writerDataSource);
+        this.writerTransactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(writerDataSource));
+    }
+
+    @Override
+    public Map<Long, Integer> reserve(List<OrderProduct> orderProducts) {
+        final Map<Long, Integer> quantities = orderProducts.stream()
+                                                           .collect(Collectors.toMap(
+                                                                   op -> op.getProduct().getId(),
+                                                                   OrderProduct::getProductQuantity,
+                                                                   Integer::sum,
+                                                                   LinkedHashMap::new
+                                                           ));
+        final Map<Long, CompletableFuture<Boolean>> requests = new LinkedHashMap<>();
+        quantities.forEach((productId, quantity) -> requests.put(productId, submit(productId, quantity)));
+
+        final Map<Long, Integer> granted = new HashMap<>();
+        final List<Long> notReserved = new ArrayList<>();
+        RuntimeException failure = null;
+        for (Map.Entry<Long, CompletableFuture<Boolean>> request : requests.entrySet()) {
+            try {
+                if (request.getValue().join()) {
+                    granted.put(request.getKey(), quantities.get(request.getKey()));
+                }
+                else {
+                    notReserved.add(request.getKey());
+                }
+            }
+            catch (CompletionException e) {
+                failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        if (Objects.nonNull(failure) || !notReserved.isEmpty()) {
+            giveBack(granted);
+            if (Objects.nonNull(failure)) {
+                throw failure;
+            }
+            final Map<Long, Integer> available = getQuantities(notReserved);
+            return notReserved.stream()
+                              .collect(Collectors.toMap(Function.identity(), id -> available.getOrDefault(id, 0)));
+        }
+        giveBackOnRollback(granted);
+        return Map.of();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writers.shutdown();
+        writerDataSource.close();
+    }
+
+    private CompletableFuture<Boolean> submit(Long productId, int quantity) {
+        return lanes.computeIfAbsent(productId, Lane::new).submit(quantity);
+    }
+
+    private void giveBack(Map<Long, Integer> quantities) {
+        quantities.forEach((productId, quantity) -> submit(productId, -quantity).whenComplete((released, e) -> {
+            if (Objects.nonNull(e)) {
+                log.error("Could not give back {} reserved units of product {}", quantity, productId, e);
+            }
+        }));
+    }
+
+    private void giveBackOnRollback(Map<Long, Integer> quantities) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    giveBack(quantities);
+                }
+            }
+        });
+    }
+
+    private static final class StockRequest {
+
+        private final int quantity;
+
+        private final CompletableFuture<Boolean> granted = new CompletableFuture<>();
+
+        private StockRequest(int quantity) {
+            this.quantity = quantity;
+        }
+    }
+
+    private final class Lane implements Runnable {
+
+        private final Long productId;
+
+        private final Queue<StockRequest> queue = new ConcurrentLinkedQueue<>();
+
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private Lane(Long productId) {
+            this.productId = productId;
+        }
+
+        CompletableFuture<Boolean> submit(int quantity) {
+            final StockRequest request = new StockRequest(quantity);
+            queue.add(request);
+            schedule();
+            return request.granted;
+        }
+
+        /**
+         * Writes one batch and hands the thread back, so a hot product cannot starve the other lanes.
+         */
+        @Override
+        public void run() {
+            final List<StockRequest> batch = new ArrayList<>();
+            for (StockRequest request = queue.poll(); Objects.nonNull(request); request = queue.poll()) {
+                batch.add(request);
+                if (batch.size() >= maxBatchSize) {
+                    break;
+                }
+            }
+            try {
+                if (!batch.isEmpty()) {
+                    write(batch);
+                }
+            }
+            finally {
+                scheduled.set(false);
+                if (!queue.isEmpty()) {
+                    schedule();
+                }
+            }
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                writers.execute(this);
+            }
+        }
+
+        private void write(List<StockRequest> batch) {
+            final long epoch = availabilityIndex.epoch(productId);
+            final boolean[] granted = new boolean[batch.size()];
+            final int remaining;
+            try {
+                remaining = writerTransactionTemplate.execute(status -> {
+                    final List<Integer> quantity = writerJdbcTemplate.queryForList(LOCK_QUANTITY, Integer.class,
+                            productId);
+                    int available = quantity.isEmpty() ? 0 : quantity.get(0);
+                    int delta = 0;
+                    boolean restocked = false;
+                    for (int i = 0; i < batch.size(); i++) {
+                        final int requested = batch.get(i).quantity;
+                        if (!quantity.isEmpty() && requested <= available) {
+                            available -= requested;
+                            delta -= requested;
+                            granted[i] = true;
+                            restocked |= requested < 0;
+                        }
+                    }
+                    if (delta != 0) {
+                        writerJdbcTemplate.update(ADD_QUANTITY, delta, productId);
+                    }
+                    if (restocked) {
+                        availabilityIndex.restockedAfterCommit(List.of(productId));
+                    }
+                    return quantity.isEmpty() ? -1 : available;
+                });
+            }
+            catch (RuntimeException e) {
+                batch.forEach(request -> request.granted.completeExceptionally(e));
+                return;
+            }
+
+            batchSizes.record(batch.size());
+            if (remaining >= 0) {
+                availabilityIndex.record(productId, remaining, epoch);
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).granted.complete(granted[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package rohlik.casares.casestudy.service.impl;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import rohlik.casares.casestudy.admission.AvailabilityIndex;
+import rohlik.casares.casestudy.model.OrderProduct;
+import rohlik.casares.casestudy.repository.ProductRepository;
+import rohlik.casares.casestudy.service.InventoryService;
+
+@Service
+@ConditionalOnProperty(name = "inventory.mode", havingValue = "database", matchIfMissing = true)
+public class DatabaseInventoryServiceImpl implements InventoryService {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private AvailabilityIndex availabilityIndex;
+
+    /**
+     * Reads the stock of the order's products first and rejects the order without writing if it is short, so only
+     * orders that were served when the stock was read take row locks. The conditional update still guards against
+     * orders taking the stock in between.
+     */
+    @Override
+    public Map<Long, Integer> reserve(List<OrderProduct> orderProducts) {
+        final Map<Long, Integer> requested = orderProducts.stream()
+                                                          .collect(Collectors.toMap(
+                                                                  op -> op.getProduct().getId(),
+                                                                  OrderProduct::getProductQuantity,
+                                                                  Integer::sum
+                                                          ));
+        final Map<Long, Long> epochs = epochs(requested.keySet());
+        final Map<Long, Integer> stock = productRepository.findQuantities(requested.keySet());
+        final Map<Long, Integer> exceeded = requested.entrySet()
+                                                  .stream()
+                                                  .filter(e -> e.getValue() > stock.getOrDefault(e.getKey(), 0))
+                                                  .collect(Collectors.toMap(
+                                                          Map.Entry::getKey, e -> stock.getOrDefault(e.getKey(), 0)));
+        if (!exceeded.isEmpty()) {
+            recordRead(stock, epochs);
+            return exceeded;
+        }
+
+        final List<OrderProduct> notReserved = productRepository.reserveQuantities(orderProducts);
+        if (notReserved.isEmpty()) {
+            writtenInTransaction(requested.keySet());
+            // Until the next restock the stock only goes down, so what was read less this order bounds what is left
+            availabilityIndex.recordAfterCommit(requested.entrySet()
+                                                         .stream()
+                                                         .collect(Collectors.toMap(
+                                                                 Map.Entry::getKey,
+                                                                 e -> stock.get(e.getKey()) - e.getValue())), epochs);
+            return Map.of();
+        }
+
+        // Taken by a concurrent order since the read
+        final Set<OrderProduct> failedLines = Collections.newSetFromMap(new IdentityHashMap<>());
+        failedLines.addAll(notReserved);
+        final Map<Long, Integer> reserved = orderProducts.stream()
+                                                         .filter(op -> !failedLines.contains(op))
+                                                         .collect(Collectors.toMap(
+                                                                 op -> op.getProduct().getId(),
+                                                                 OrderProduct::getProductQuantity,
+                                                                 Integer::sum
+                                                         ));
+        productRepository.addQuantities(reserved);
+        writtenInTransaction(reserved.keySet());
+        final Map<Long, Integer> current = productRepository.findQuantities(notReserved.stream()
+                                                                                       .map(op -> op.getProduct()
+                                                                                                    .getId())
+                                                                                       .collect(Collectors.toSet()));
+        recordRead(current, epochs);
+        return notReserved.stream()
+                          .map(op -> op.getProduct().getId())
+                          .distinct()
+                          .collect(Collectors.toMap(Function.identity(), id -> current.getOrDefault(id, 0)));
+    }
+
+    @Override
+    public void release(Map<Long, Integer> quantities) {
+        productRepository.addQuantities(quantities);
+        writtenInTransaction(quantities.keySet());
+        availabilityIndex.restockedAfterCommit(quantities.keySet());
+    }
+
+    @Override
+    public List<Long> adjust(Map<Long, Integer> deltas) {
+        final Set<Long> decreasedProductIds = deltas.entrySet()
+                                                    .stream()
+                                                    .filter(e -> e.getValue() < 0)
+                                                    .map(Map.Entry::getKey)
+                                                    .collect(Collectors.toSet());
+        final Map<Long, Long> epochs = epochs(decreasedProductIds);
+        final List<Long> notAdjusted = productRepository.adjustQuantities(deltas);
+        writtenInTransaction(deltas.keySet());
+        if (notAdjusted.isEmpty()) {
+            availabilityIndex.restockedAfterCommit(deltas.entrySet()
+                                                         .stream()
+                                                         .filter(e -> e.getValue() > 0)
+                                                         .map(Map.Entry::getKey)
+                                                         .collect(Collectors.toList()));
+            if (!decreasedProductIds.isEmpty()) {
+                availabilityIndex.recordAfterCommit(productRepository.findQuantities(decreasedProductIds), epochs);
+            }
+            return List.of();
+        }
+        final Set<Long> failedProductIds = Set.copyOf(notAdjusted);
+        productRepository.addQuantities(deltas.entrySet()
+                                              .stream()
+                                              .filter(e -> !failedProductIds.contains(e.getKey()))
+                                              .collect(Collectors.toMap(Map.Entry::getKey, e -> -e.getValue())));
+        return notAdjusted;
+    }
+
+    @Override
+    public Map<Long, Integer> getQuantities(Collection<Long> productIds) {
+        return productRepository.findQuantities(productIds);
+    }
+
+    @Override
+    public void onStockReset(Long productId, Integer quantity) {
+        availabilityIndex.restockedAfterCommit(List.of(productId));
+    }
+
+    private Map<Long, Long> epochs(Collection<Long> productIds) {
+        return productIds.stream().collect(Collectors.toMap(Function.identity(), availabilityIndex::epoch));
+    }
+
+    /**
+     * Records stock read in the current transaction. Stock it wrote itself is only committed with it, the rest was
+     * read as committed by others.
+     */
+    private void recordRead(Map<Long, Integer> quantities, Map<Long, Long> epochs) {
+        final Set<Long> written = writtenInTransaction(List.of());
+        quantities.forEach((productId, quantity) -> {
+            if (written.contains(productId)) {
+                availabilityIndex.recordAfterCommit(Map.of(productId, quantity), epochs);
+            }
+            else {
+                availabilityIndex.record(productId, quantity, epochs.get(productId));
+            }
+        });
+    }
+
+    /**
+     * Adds to and returns the products whose stock the current transaction wrote.
+     */
+    private Set<Long> writtenInTransaction(Collection<Long> productIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return Set.of();
+        }
+        @SuppressWarnings("unchecked")
+        Set<Long> written = (Set<Long>) TransactionSynchronizationManager.getResource(this);
+        if (Objects.isNull(written)) {
+            written = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(this, written);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(DatabaseInventoryServiceImpl.this);
+                }
+            });
+        }
+        written.addAll(productIds);
+        return written;
+    }
+
+    @Override
+    public void onProductDeleted(Long productId) {
+    }
+}
@@ -0,0 +1,228 @@
+package rohlik.casares.casestudy.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import rohlik.casares.casestudy.admission.AvailabilityIndex;
+import rohlik.casares.casestudy.model.OrderProduct;
+import rohlik.casares.casestudy.repository.ProductRepository;
+import rohlik.casares.casestudy.service.InventoryService;
+
+/**
+ * Keeps the available quantity of every product in memory and reserves it with a CAS loop, so the order path does
+ * not touch the {@code products} rows. Changes are coalesced per product and written behind on a fixed delay.
+ * Stock changes that are not yet flushed are lost if the process dies.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "inventory.mode", havingValue = "ledger")
+public class LedgerInventoryServiceImpl implements InventoryService {
+
+    private final Map<Long, AtomicLong> available = new ConcurrentHashMap<>();
+
+    private final Map<Long, AtomicLong> pendingDeltas = new ConcurrentHashMap<>();
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private AvailabilityIndex availabilityIndex;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcile() {
+        flush();
+        productRepository.findAllQuantities()
+                         .forEach((productId, quantity) -> available.put(productId, new AtomicLong(quantity)));
+    }
+
+    @Override
+    public Map<Long, Integer> reserve(List<OrderProduct> orderProducts) {
+        final Map<Long, Integer> reserved = new HashMap<>();
+        final List<Long> notReserved = new ArrayList<>();
+        for (OrderProduct orderProduct : orderProducts) {
+            final Long productId = orderProduct.getProduct().getId();
+            final int quantity = orderProduct.getProductQuantity();
+            if (tryReserve(productId, quantity)) {
+                reserved.merge(productId, quantity, Integer::sum);
+            }
+            else {
+                notReserved.add(productId);
+            }
+        }
+
+        if (notReserved.isEmpty()) {
+            undoOnRollback(reserved, 1);
+            return Map.of();
+        }
+        add(reserved, 1);
+        final Map<Long, Integer> quantities = getQuantities(notReserved);
+        return notReserved.stream()
+                          .distinct()
+                          .collect(Collectors.toMap(Function.identity(), id -> quantities.getOrDefault(id, 0)));
+    }
+
+    @Override
+    public void release(Map<Long, Integer> quantities) {
+        add(quantities, 1);
+        undoOnRollback(quantities, -1);
+    }
+
+    @Override
+    public List<Long> adjust(Map<Long, Integer> deltas) {
+        final Map<Long, Integer> adjusted = new HashMap<>();
+        final List<Long> notAdjusted = new ArrayList<>();
+        deltas.forEach((productId, delta) -> {
+            if (delta < 0 ? tryReserve(productId, -delta) : tryAdd(productId, delta)) {
+                adjusted.put(productId, delta);
+            }
+            else {
+                notAdjusted.add(productId);
+            }
+        });
+
+        if (!notAdjusted.isEmpty()) {
+            add(adjusted, -1);
+        }
+        else {
+            undoOnRollback(adjusted, -1);
+        }
+        return notAdjusted;
+    }
+
+    @Override
+    public Map<Long, Integer> getQuantities(Collection<Long> productIds) {
+        final Map<Long, Integer> quantities = new HashMap<>();
+        productIds.forEach(productId -> {
+            final AtomicLong productAvailable = getAvailable(productId);
+            if (Objects.nonNull(productAvailable)) {
+                quantities.put(productId, (int) productAvailable.get());
+            }
+        });
+        return quantities;
+    }
+
+    @Override
+    public void onStockReset(Long productId, Integer quantity) {
+        pendingDeltas.remove(productId);
+        available.put(productId, new AtomicLong(quantity));
+        availabilityIndex.restocked(List.of(productId));
+    }
+
+    @Override
+    public void onProductDeleted(Long productId) {
+        pendingDeltas.remove(productId);
+        available.remove(productId);
+    }
+
+    @PreDestroy
+    @Scheduled(
+            initialDelayString = "${inventory.ledger.flush-interval:PT1S}",
+            fixedDelayString = "${inventory.ledger.flush-interval:PT1S}"
+    )
+    public void flush() {
+        final Map<Long, Integer> deltas = new HashMap<>();
+        pendingDeltas.forEach((productId, delta) -> {
+            final long value = delta.getAndSet(0);
+            if (value != 0) {
+                deltas.put(productId, (int) value);
+            }
+        });
+        if (deltas.isEmpty()) {
+            return;
+        }
+        try {
+            productRepository.addQuantities(deltas);
+        }
+        catch (RuntimeException e) {
+            log.warn("Could not flush {} stock deltas, retrying on next flush", deltas.size(), e);
+            deltas.forEach(this::addPendingDelta);
+        }
+    }
+
+    private boolean tryReserve(Long productId, int quantity) {
+        final AtomicLong productAvailable = getAvailable(productId);
+        if (Objects.isNull(productAvailable)) {
+            return false;
+        }
+        final long epoch = availabilityIndex.epoch(productId);
+        long current;
+        do {
+            current = productAvailable.get();
+            if (current < quantity) {
+                availabilityIndex.record(productId, (int) current, epoch);
+                return false;
+            }
+        } while (!productAvailable.compareAndSet(current, current - quantity));
+        addPendingDelta(productId, -quantity);
+        availabilityIndex.record(productId, (int) (current - quantity), epoch);
+        return true;
+    }
+
+    private boolean tryAdd(Long productId, int quantity) {
+        final AtomicLong productAvailable = getAvailable(productId);
+        if (Objects.isNull(productAvailable)) {
+            return false;
+        }
+        productAvailable.addAndGet(quantity);
+        addPendingDelta(productId, quantity);
+        if (quantity > 0) {
+            availabilityIndex.restocked(List.of(productId));
+        }
+        return true;
+    }
+
+    private void add(Map<Long, Integer> quantities, int sign) {
+        quantities.forEach((productId, quantity) -> {
+            final AtomicLong productAvailable = getAvailable(productId);
+            if (Objects.nonNull(productAvailable)) {
+                productAvailable.addAndGet((long) sign * quantity);
+                addPendingDelta(productId, sign * quantity);
+                if (sign * quantity > 0) {
+                    availabilityIndex.restocked(List.of(productId));
+                }
+            }
+        });
+    }
+
+    private void undoOnRollback(Map<Long, Integer> quantities, int sign) {
+        if (quantities.isEmpty() || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    add(quantities, sign);
+                }
+            }
+        });
+    }
+
+    private AtomicLong getAvailable(Long productId) {
+        return available.computeIfAbsent(productId, id -> {
+            final Integer quantity = productRepository.findQuantities(List.of(id)).get(id);
+            return Objects.isNull(quantity) ? null : new AtomicLong(quantity);
+        });
+    }
+
+    private void addPendingDelta(Long productId, int delta) {
+        pendingDeltas.computeIfAbsent(productId, id -> new AtomicLong()).addAndGet(delta);
+    }
+}
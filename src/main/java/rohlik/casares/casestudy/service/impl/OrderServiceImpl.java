@@ -1,34 +1,56 @@
 package rohlik.casares.casestudy.service.impl;
 
-import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
+import rohlik.casares.casestudy.cache.CatalogProduct;
+import rohlik.casares.casestudy.cache.ProductCatalogCache;
+import rohlik.casares.casestudy.dto.BatchOrderResultDto;
 import rohlik.casares.casestudy.dto.OrderDto;
 import rohlik.casares.casestudy.dto.OrderProductDto;
+import rohlik.casares.casestudy.exception.InvalidRequestException;
 import rohlik.casares.casestudy.exception.OrderNotFoundException;
 import rohlik.casares.casestudy.exception.OrderServiceException;
 import rohlik.casares.casestudy.exception.OrderStatusOperationException;
 import rohlik.casares.casestudy.exception.ProductNotFoundException;
 import rohlik.casares.casestudy.exception.StockExceededException;
+import rohlik.casares.casestudy.journal.StateJournal;
 import rohlik.casares.casestudy.model.Order;
 import rohlik.casares.casestudy.model.OrderProduct;
 import rohlik.casares.casestudy.model.OrderStatus;
 import rohlik.casares.casestudy.model.Product;
+import rohlik.casares.casestudy.outbox.OrderOutbox;
+import rohlik.casares.casestudy.repository.OrderLineDetailView;
 import rohlik.casares.casestudy.repository.OrderProductRepository;
 import rohlik.casares.casestudy.repository.OrderRepository;
+import rohlik.casares.casestudy.repository.OrderSummary;
 import rohlik.casares.casestudy.repository.ProductRepository;
-import rohlik.casares.casestudy.service.OrderService;
+import rohlik.casares.casestudy.scheduler.OrderExpiryScheduler;
+import rohlik.casares.casestudy.service.InventoryService;
 import rohlik.casares.casestudy.utils.OrderMapper;
+import rohlik.casares.casestudy.utils.PriceUtils;
+import rohlik.casares.casestudy.utils.ProductMapper;
 
+/**
+ * Places orders and changes their status, one transaction per call. Callers go through
+ * {@link RetryingOrderServiceImpl}, which admits orders, honours idempotency keys and retries lock conflicts.
+ */
 @Service
-public class OrderServiceImpl implements OrderService {
+public class OrderServiceImpl {
 
     @Autowired
     private OrderRepository orderRepository;
@@ -39,15 +61,32 @@ public class OrderServiceImpl implements OrderService {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    @Autowired
+    private OrderExpiryScheduler orderExpiryScheduler;
+
+    @Autowired
+    private OrderOutbox orderOutbox;
+
+    @Autowired
+    private StateJournal stateJournal;
+
 
-    @Override
+    @Transactional(rollbackFor = Exception.class)
     public OrderDto createOrder(OrderDto orderDto) throws OrderServiceException {
         try {
             final OrderDto newOrder = createNewOrder(orderDto);
             if (Objects.isNull(newOrder)) {
                 return null;
             }
-            cancelAbandonedOrderAfter30Minutes(newOrder.getOrderId());
+            orderOutbox.append(newOrder.getOrderId(), OrderStatus.CREATED);
+            stateJournal.recordOrders(List.of(newOrder.getOrderId()));
+            orderExpiryScheduler.schedule(newOrder.getOrderId(), newOrder.getExpiresAt());
 
             return newOrder;
         }
@@ -56,98 +95,242 @@ public class OrderServiceImpl implements OrderService {
         }
     }
 
-    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public List<BatchOrderResultDto> createOrders(List<OrderDto> orderDtos) {
+        final Map<Long, Product> stockMap = productRepository.findAllById(
+                                                                     orderDtos.stream()
+                                                                              .flatMap(o -> getOrderLines(o).stream())
+                                                                              .filter(op -> Objects.nonNull(op)
+                                                                                      && Objects.nonNull(op.getProduct()))
+                                                                              .map(op -> op.getProduct().getProductId())
+                                                                              .collect(Collectors.toSet()))
+                                                             .stream()
+                                                             .collect(Collectors.toMap(
+                                                                     Product::getId, Function.identity()));
+        final Map<Long, CatalogProduct> catalogProducts = stockMap.values()
+                                                                  .stream()
+                                                                  .collect(Collectors.toMap(
+                                                                          Product::getId,
+                                                                          ProductMapper::mapToCatalogProduct));
+        // The inventory service is ahead of the loaded entities when stock is kept in memory
+        final Map<Long, Integer> remainingStock = new HashMap<>(inventoryService.getQuantities(stockMap.keySet()));
+        final Instant createdAt = Instant.now();
+        final Instant expiresAt = orderExpiryScheduler.expiresAt(createdAt);
+
+        final BatchOrderResultDto[] results = new BatchOrderResultDto[orderDtos.size()];
+        final Map<Integer, Order> acceptedOrders = new LinkedHashMap<>();
+        for (int i = 0; i < orderDtos.size(); i++) {
+            final Order order = Order.builder()
+                                     .status(OrderStatus.CREATED)
+                                     .createdAt(createdAt)
+                                     .expiresAt(expiresAt)
+                                     .build();
+            try {
+                order.setOrderProducts(priceOrder(
+                        order, getOrderLines(orderDtos.get(i)), catalogProducts, stockMap::get));
+            }
+            catch (ProductNotFoundException | InvalidRequestException e) {
+                results[i] = BatchOrderResultDto.builder().error(e.getMessage()).build();
+                continue;
+            }
+
+            final Optional<String> stockError = takeRemainingStock(
+                    order.getOrderProducts(), catalogProducts, remainingStock);
+            if (stockError.isPresent()) {
+                results[i] = BatchOrderResultDto.builder().error(stockError.get()).build();
+                continue;
+            }
+            acceptedOrders.put(i, order);
+        }
+
+        reserveBatchQuantities(acceptedOrders, stockMap, catalogProducts, results);
+
+        orderRepository.saveAll(acceptedOrders.values());
+        orderProductRepository.saveAll(acceptedOrders.values()
+                                                     .stream()
+                                                     .flatMap(o -> o.getOrderProducts().stream())
+                                                     .collect(Collectors.toList()));
+        final List<Long> acceptedOrderIds = acceptedOrders.values()
+                                                          .stream()
+                                                          .map(Order::getId)
+                                                          .collect(Collectors.toList());
+        orderOutbox.appendAll(acceptedOrderIds, OrderStatus.CREATED);
+        stateJournal.recordOrders(acceptedOrderIds);
+        final Map<Long, Integer> stockLeft = acceptedOrders.isEmpty()
+                ? Map.of()
+                : inventoryService.getQuantities(catalogProducts.keySet());
+        acceptedOrders.forEach((i, order) -> {
+            results[i] = BatchOrderResultDto.builder()
+                                            .order(OrderMapper.mapToOrderDto(order, catalogProducts, stockLeft))
+                                            .build();
+            orderExpiryScheduler.schedule(order.getId(), order.getExpiresAt());
+        });
+        return Arrays.asList(results);
+    }
+
+    @Transactional(readOnly = true)
+    public OrderDto findOrder(Long orderId) throws OrderNotFoundException {
+        final OrderSummary order = orderRepository.findSummaryById(orderId)
+                                                  .orElseThrow(() -> new OrderNotFoundException(
+                                                          String.format("Order with id [%d] does not exist", orderId)));
+        return OrderMapper.mapToOrderDto(order, orderProductRepository.findLineDetailsByOrderIds(List.of(orderId)));
+    }
+
+    @Transactional(readOnly = true)
+    public List<OrderDto> findOrders(
+            OrderStatus status, Instant from, Instant to, Instant afterCreatedAt, Long afterId, int size
+    ) {
+        final List<OrderSummary> orders = orderRepository.findSummaries(status, from, to, afterCreatedAt, afterId, size);
+        if (orders.isEmpty()) {
+            return List.of();
+        }
+        final Map<Long, List<OrderLineDetailView>> lines =
+                orderProductRepository.findLineDetailsByOrderIds(orders.stream()
+                                                                       .map(OrderSummary::getId)
+                                                                       .collect(Collectors.toList()))
+                                      .stream()
+                                      .collect(Collectors.groupingBy(OrderLineDetailView::getOrderId));
+        return orders.stream()
+                     .map(order -> OrderMapper.mapToOrderDto(order, lines.getOrDefault(order.getId(), List.of())))
+                     .collect(Collectors.toList());
+    }
+
+    @Transactional(rollbackFor = Exception.class)
     public OrderDto cancelOrder(Long orderId) throws OrderNotFoundException, OrderStatusOperationException {
 
-        final Order order = orderRepository.findById(orderId)
+        final Order order = orderRepository.findWithLinesById(orderId)
                                            .orElseThrow(() -> new OrderNotFoundException(
                                                    String.format("Order with id [%d] does not exist", orderId)));
 
         checkOrderStatus(order);
-
-        final List<Product> productsById = productRepository.findAllById(
-                order.getOrderProducts().stream().map(op -> op.getProduct().getId()).collect(Collectors.toList()));
-        final Map<Long, Product> stockMap = productsById.stream()
-                                                        .collect(Collectors.toMap(Product::getId, Function.identity()));
-        List<Product> productsToUpdate = order.getOrderProducts().stream().map(op -> {
-            final Product product = stockMap.get(op.getProduct().getId());
-            product.setQuantity(product.getQuantity() + op.getProductQuantity());
-            return product;
-        }).collect(Collectors.toList());
-        productRepository.saveAll(productsToUpdate);
-
-        order.setStatus(OrderStatus.CANCELLED);
-        final Order orderCancelled = orderRepository.save(order);
-        return OrderMapper.mapToOrderDto(orderCancelled);
+        updateOrderStatus(order, OrderStatus.CANCELLED);
+        orderOutbox.append(orderId, OrderStatus.CANCELLED);
+        stateJournal.recordOrders(List.of(orderId));
+
+        inventoryService.release(order.getOrderProducts()
+                                      .stream()
+                                      .collect(Collectors.toMap(
+                                              op -> op.getProduct().getId(),
+                                              OrderProduct::getProductQuantity,
+                                              Integer::sum
+                                      )));
+
+        orderExpiryScheduler.unschedule(orderId);
+        return OrderMapper.mapToOrderDto(order.toBuilder().status(OrderStatus.CANCELLED).build());
     }
 
-    @Override
+    @Transactional(rollbackFor = Exception.class)
     public OrderDto payOrder(Long orderId) throws OrderNotFoundException, OrderStatusOperationException {
-        final Order order = orderRepository.findById(orderId)
+        final Order order = orderRepository.findWithLinesById(orderId)
                                            .orElseThrow(() -> new OrderNotFoundException(
                                                    String.format("Order with id [%d] does not exist", orderId)));
 
         checkOrderStatus(order);
+        updateOrderStatus(order, OrderStatus.PAID);
+        orderOutbox.append(orderId, OrderStatus.PAID);
+        stateJournal.recordOrders(List.of(orderId));
 
-        order.setStatus(OrderStatus.PAID);
-        final Order orderPaid = orderRepository.save(order);
-        return OrderMapper.mapToOrderDto(orderPaid);
+        orderExpiryScheduler.unschedule(orderId);
+        return OrderMapper.mapToOrderDto(order.toBuilder().status(OrderStatus.PAID).build());
     }
 
-    @Async
-    private void cancelAbandonedOrderAfter30Minutes(Long orderId) {
-        new Thread(() -> {
-            try {
-                Thread.sleep(30L * 60L * 1000);
-                cancelOrder(orderId);
-            }
-            catch (OrderNotFoundException | OrderStatusOperationException e) {
-                throw new RuntimeException(e);
-            }
-            catch (InterruptedException e){
-                Thread.currentThread().interrupt();
-            }
-
-        }).start();
-    }
-
-
     private OrderDto createNewOrder(OrderDto orderDto) throws OrderServiceException {
         try {
             final List<OrderProductDto> orderProductDtoList = orderDto.getProducts();
-            Map<Long, Product> stockMap = getStockMap(orderProductDtoList);
+            checkOrderLines(orderProductDtoList);
 
+            final Instant createdAt = Instant.now();
             final Order order = Order.builder()
-                                     .total(getTotal(orderProductDtoList, stockMap))
                                      .status(OrderStatus.CREATED)
+                                     .createdAt(createdAt)
+                                     .expiresAt(orderExpiryScheduler.expiresAt(createdAt))
                                      .build();
+            final Map<Long, CatalogProduct> catalogProducts = getCatalogProducts(orderProductDtoList);
+            final List<OrderProduct> orderProducts = priceOrder(
+                    order, orderProductDtoList, catalogProducts, productRepository::getReferenceById);
 
-            final Order savedOrder = orderRepository.save(order);
+            // Nothing is written before the stock is reserved, and the inserts are only flushed at commit
+            reserveProductQuantities(orderProducts, catalogProducts);
 
-            final List<OrderProduct> orderProducts = buildOrderProducts(savedOrder, orderProductDtoList, stockMap);
-            checkAndUpdateProductQuantities(orderProducts, stockMap);
+            final Order savedOrder = orderRepository.save(order);
             orderProductRepository.saveAll(orderProducts);
             savedOrder.setOrderProducts(orderProducts);
-            return OrderMapper.mapToOrderDto(savedOrder);
+            // The lines reference unloaded products, so the response is built from the catalog and the stock left
+            return OrderMapper.mapToOrderDto(
+                    savedOrder, catalogProducts, inventoryService.getQuantities(catalogProducts.keySet()));
         }
-        catch (StockExceededException | ProductNotFoundException e) {
+        catch (StockExceededException | ProductNotFoundException | InvalidRequestException e) {
             throw new OrderServiceException(e);
         }
     }
 
+    /**
+     * Rejects lines without a product id or with a quantity that is not positive.
+     */
+    static void checkOrderLines(List<OrderProductDto> orderProductDtoList) throws InvalidRequestException {
+        if (Objects.isNull(orderProductDtoList)) {
+            throw new InvalidRequestException("Order must have a list of products");
+        }
+        for (OrderProductDto orderProductDto : orderProductDtoList) {
+            checkOrderLine(orderProductDto);
+        }
+    }
+
+    /**
+     * Validates and prices the lines in one pass: resolves every product, builds the order lines and sums the total
+     * in minor units, so no intermediate collections or per-line BigDecimals are created. Lines repeating a product
+     * are coalesced into the first one, so stock is checked and reserved once per distinct product. Lines reference
+     * the product {@code productRefs} returns for their product id.
+     */
+    static List<OrderProduct> priceOrder(
+            Order order,
+            List<OrderProductDto> orderProductDtoList,
+            Map<Long, CatalogProduct> catalogProducts,
+            Function<Long, Product> productRefs
+    ) throws ProductNotFoundException, InvalidRequestException {
+
+        final List<OrderProduct> orderProducts = new ArrayList<>(orderProductDtoList.size());
+        final Map<Long, OrderProduct> linesByProduct = new HashMap<>(orderProductDtoList.size() * 2);
+        long total = 0L;
+        for (OrderProductDto orderProductDto : orderProductDtoList) {
+            checkOrderLine(orderProductDto);
+            final Long productId = orderProductDto.getProduct().getProductId();
+            final CatalogProduct catalogProduct = catalogProducts.get(productId);
+            if (Objects.isNull(catalogProduct)) {
+                throw new ProductNotFoundException("One or more products were not found");
+            }
 
-    private List<OrderProduct> buildOrderProducts(
-            Order order, List<OrderProductDto> orderProductDtoList, Map<Long, Product> stockMap
-    ) {
+            final int quantity = orderProductDto.getProductQuantity();
+            total = Math.addExact(total, Math.multiplyExact(catalogProduct.getPriceMinor(), quantity));
+
+            final OrderProduct existingLine = linesByProduct.get(productId);
+            if (Objects.nonNull(existingLine)) {
+                existingLine.setProductQuantity(Math.addExact(existingLine.getProductQuantity(), quantity));
+                continue;
+            }
 
-        return orderProductDtoList.stream()
-                                  .map(op -> OrderProduct.builder()
-                                                         .order(order)
-                                                         .product(stockMap.get(
-                                                                 op.getProduct().getProductId()))
-                                                         .productQuantity(op.getProductQuantity())
-                                                         .build())
-                                  .collect(Collectors.toList());
+            final OrderProduct orderProduct = OrderProduct.builder()
+                                                          .order(order)
+                                                          .product(productRefs.apply(productId))
+                                                          .productQuantity(quantity)
+                                                          .build();
+            linesByProduct.put(productId, orderProduct);
+            orderProducts.add(orderProduct);
+        }
+        order.setTotal(PriceUtils.fromMinorUnits(total));
+        return orderProducts;
+    }
+
+    private static void checkOrderLine(OrderProductDto orderProductDto) throws InvalidRequestException {
+        if (Objects.isNull(orderProductDto)
+                || Objects.isNull(orderProductDto.getProduct())
+                || Objects.isNull(orderProductDto.getProduct().getProductId())) {
+            throw new InvalidRequestException("Every order line must have a product id");
+        }
+        if (Objects.isNull(orderProductDto.getProductQuantity()) || orderProductDto.getProductQuantity() <= 0) {
+            throw new InvalidRequestException(String.format(
+                    "Quantity of product [%d] must be a positive number", orderProductDto.getProduct().getProductId()));
+        }
     }
 
     private void checkOrderStatus(Order order) throws OrderStatusOperationException {
@@ -162,60 +345,119 @@ public class OrderServiceImpl implements OrderService {
         }
     }
 
-    private BigDecimal getTotal(List<OrderProductDto> products, Map<Long, Product> stockMap) {
-        return products.stream()
-                       .map(op -> stockMap.get(op.getProduct().getProductId())
-                                          .getPrice()
-                                          .multiply(BigDecimal.valueOf(op.getProductQuantity())))
-                       .reduce(BigDecimal.ZERO, BigDecimal::add);
+    private void updateOrderStatus(Order order, OrderStatus status) {
+        if (!orderRepository.updateStatus(order.getId(), order.getVersion(), status)) {
+            throw new ObjectOptimisticLockingFailureException(Order.class, order.getId());
+        }
     }
 
-    private void checkAndUpdateProductQuantities(
-            List<OrderProduct> orderProductDtoList, Map<Long, Product> stockMap
+    private void reserveProductQuantities(
+            List<OrderProduct> orderProducts, Map<Long, CatalogProduct> catalogProducts
     ) throws StockExceededException {
 
-        final List<OrderProduct> exceededProducts = orderProductDtoList.stream()
-                                                                       .filter(op -> op.getProductQuantity() > stockMap.get(
-                                                                                                                               op.getProduct().getId())
-                                                                                                                       .getQuantity())
-                                                                       .collect(
-                                                                               Collectors.toList());
-        if (!CollectionUtils.isEmpty(exceededProducts)) {
-            throw new StockExceededException(String.format(
-                    "Order quantity exceeded stock for the following products: \n" +
-                            "* %s", exceededProducts.stream()
-                                                    .map(ep -> String.format(
-                                                            "%s - Missing items: %d",
-                                                            ep.getProduct().getName(),
-                                                            ep.getProductQuantity() - ep.getProduct()
-                                                                                        .getQuantity()
-                                                    ))
-                                                    .collect(
-                                                            Collectors.joining("\n* "))));
-        }
-
-        List<Product> productsToUpdate = orderProductDtoList.stream().map(op -> {
-            final Product product = stockMap.get(op.getProduct().getId());
-            product.setQuantity(product.getQuantity() - op.getProductQuantity());
-            return product;
-        }).collect(Collectors.toList());
-        productRepository.saveAll(productsToUpdate);
-    }
-
-    private Map<Long, Product> getStockMap(List<OrderProductDto> orderProductDtoList)
-            throws ProductNotFoundException {
-
-        final List<Long> productIdList = orderProductDtoList.stream()
-                                                            .map(op -> op.getProduct().getProductId())
-                                                            .collect(Collectors.toList());
-        final List<Product> productsById = productRepository.findAllById(productIdList);
-
-        final Map<Long, Product> stockMap = productsById.stream()
-                                                        .collect(Collectors.toMap(Product::getId, Function.identity()));
-        if (!stockMap.keySet().containsAll(productIdList)) {
-            throw new ProductNotFoundException("One or more products were not found");
-        }
-        return stockMap;
+        final Map<Long, Integer> exceededStock = inventoryService.reserve(orderProducts);
+        if (!CollectionUtils.isEmpty(exceededStock)) {
+            throw new StockExceededException(getStockExceededMessage(
+                    orderProducts, catalogProducts, List.copyOf(exceededStock.keySet()), exceededStock));
+        }
+    }
+
+    private void reserveBatchQuantities(
+            Map<Integer, Order> acceptedOrders,
+            Map<Long, Product> stockMap,
+            Map<Long, CatalogProduct> catalogProducts,
+            BatchOrderResultDto[] results
+    ) {
+        final Map<Long, Integer> batchQuantities = acceptedOrders.values()
+                                                                 .stream()
+                                                                 .flatMap(o -> o.getOrderProducts().stream())
+                                                                 .collect(Collectors.toMap(
+                                                                         op -> op.getProduct().getId(),
+                                                                         OrderProduct::getProductQuantity,
+                                                                         Integer::sum
+                                                                 ));
+        final List<OrderProduct> batchReservation = batchQuantities.entrySet()
+                                                                   .stream()
+                                                                   .map(e -> OrderProduct.builder()
+                                                                                         .product(stockMap.get(e.getKey()))
+                                                                                         .productQuantity(e.getValue())
+                                                                                         .build())
+                                                                   .collect(Collectors.toList());
+        if (inventoryService.reserve(batchReservation).isEmpty()) {
+            return;
+        }
+
+        // Stock changed since it was read, fall back to reserving order by order
+        final Iterator<Map.Entry<Integer, Order>> iterator = acceptedOrders.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<Integer, Order> acceptedOrder = iterator.next();
+            try {
+                reserveProductQuantities(acceptedOrder.getValue().getOrderProducts(), catalogProducts);
+            }
+            catch (StockExceededException e) {
+                results[acceptedOrder.getKey()] = BatchOrderResultDto.builder().error(e.getMessage()).build();
+                iterator.remove();
+            }
+        }
+    }
+
+    private Optional<String> takeRemainingStock(
+            List<OrderProduct> orderProducts,
+            Map<Long, CatalogProduct> catalogProducts,
+            Map<Long, Integer> remainingStock
+    ) {
+        final Map<Long, Integer> requested = orderProducts.stream()
+                                                          .collect(Collectors.toMap(
+                                                                  op -> op.getProduct().getId(),
+                                                                  OrderProduct::getProductQuantity,
+                                                                  Integer::sum
+                                                          ));
+        final List<Long> exceededProductIds = requested.entrySet()
+                                                       .stream()
+                                                       .filter(e -> e.getValue() > remainingStock.getOrDefault(e.getKey(), 0))
+                                                       .map(Map.Entry::getKey)
+                                                       .collect(Collectors.toList());
+        if (!exceededProductIds.isEmpty()) {
+            return Optional.of(getStockExceededMessage(
+                    orderProducts, catalogProducts, exceededProductIds, remainingStock));
+        }
+        requested.forEach((productId, quantity) -> remainingStock.merge(productId, -quantity, Integer::sum));
+        return Optional.empty();
+    }
+
+    /**
+     * Names the products from the catalog, the order lines only hold references that would each be loaded.
+     */
+    private String getStockExceededMessage(
+            List<OrderProduct> orderProducts,
+            Map<Long, CatalogProduct> catalogProducts,
+            List<Long> exceededProductIds,
+            Map<Long, Integer> stock
+    ) {
+        return String.format(
+                "Order quantity exceeded stock for the following products: \n" +
+                        "* %s", orderProducts.stream()
+                                             .filter(op -> exceededProductIds.contains(op.getProduct().getId()))
+                                             .map(ep -> String.format(
+                                                     "%s - Missing items: %d",
+                                                     catalogProducts.get(ep.getProduct().getId()).getName(),
+                                                     ep.getProductQuantity() - stock.getOrDefault(
+                                                             ep.getProduct().getId(), 0)
+                                             ))
+                                             .collect(
+                                                     Collectors.joining("\n* ")));
+    }
+
+    private List<OrderProductDto> getOrderLines(OrderDto orderDto) {
+        return Objects.isNull(orderDto.getProducts()) ? List.of() : orderDto.getProducts();
+    }
+
+    private Map<Long, CatalogProduct> getCatalogProducts(List<OrderProductDto> orderProductDtoList) {
+        final List<Long> productIds = new ArrayList<>(orderProductDtoList.size());
+        for (OrderProductDto orderProductDto : orderProductDtoList) {
+            productIds.add(orderProductDto.getProduct().getProductId());
+        }
+        return productCatalogCache.getAll(productIds);
     }
 
 
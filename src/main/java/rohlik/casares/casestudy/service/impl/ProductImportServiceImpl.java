@@ -0,0 +1,227 @@
+package rohlik.casares.casestudy.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import rohlik.casares.casestudy.cache.ProductCatalogCache;
+import rohlik.casares.casestudy.dto.ProductDto;
+import rohlik.casares.casestudy.dto.ProductImportErrorDto;
+import rohlik.casares.casestudy.dto.ProductImportResultDto;
+import rohlik.casares.casestudy.journal.StateJournal;
+import rohlik.casares.casestudy.model.Product;
+import rohlik.casares.casestudy.repository.ProductRepository;
+import rohlik.casares.casestudy.service.ProductImportService;
+import rohlik.casares.casestudy.utils.PriceUtils;
+import rohlik.casares.casestudy.utils.ProductMapper;
+
+/**
+ * Reads the upload line by line and writes it in JDBC batches, so memory use does not depend on the size of the
+ * upload. Every batch is committed in its own transaction: rows that fail are reported with their line number and do
+ * not stop the import. Updates leave the quantity untouched, stock of existing products only changes through stock adjustments.
+ */
+@Service
+public class ProductImportServiceImpl implements ProductImportService {
+
+    private static final CsvMapper CSV_MAPPER = CsvMapper.builder()
+                                                         .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+                                                         .enable(CsvParser.Feature.TRIM_SPACES)
+                                                         .build();
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private StateJournal stateJournal;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${products.import.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${products.import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    @Override
+    public ProductImportResultDto importCsv(InputStream inputStream) throws IOException {
+        final BufferedReader reader = newReader(inputStream);
+        final String header = reader.readLine();
+        if (Objects.isNull(header)) {
+            return new Import().getResult();
+        }
+        final CsvSchema.Builder schema = CsvSchema.builder();
+        for (String column : header.split(",")) {
+            schema.addColumn(column.trim());
+        }
+        final ObjectReader rowReader = CSV_MAPPER.readerFor(ProductDto.class).with(schema.build());
+        return importLines(reader, 2, rowReader::readValue);
+    }
+
+    @Override
+    public ProductImportResultDto importNdjson(InputStream inputStream) throws IOException {
+        final ObjectReader rowReader = objectMapper.readerFor(ProductDto.class);
+        return importLines(newReader(inputStream), 1, rowReader::readValue);
+    }
+
+    private ProductImportResultDto importLines(BufferedReader reader, long firstLine, RowParser parser)
+            throws IOException {
+
+        final Import productImport = new Import();
+        long lineNumber = firstLine;
+        for (String line = reader.readLine(); Objects.nonNull(line); line = reader.readLine(), lineNumber++) {
+            if (line.isBlank()) {
+                continue;
+            }
+            final ProductDto productDto;
+            try {
+                productDto = parser.parse(line);
+            }
+            catch (JsonProcessingException e) {
+                productImport.fail(lineNumber, "Malformed row: " + e.getOriginalMessage());
+                continue;
+            }
+            final String error = validate(productDto);
+            if (Objects.nonNull(error)) {
+                productImport.fail(lineNumber, error);
+                continue;
+            }
+            productImport.add(lineNumber, ProductMapper.mapToProduct(productDto));
+            if (productImport.pendingCount() >= batchSize) {
+                productImport.flush();
+            }
+        }
+        productImport.flush();
+        return productImport.getResult();
+    }
+
+    private static String validate(ProductDto productDto) {
+        if (Objects.isNull(productDto.getName()) || productDto.getName().isBlank()) {
+            return "Name is required";
+        }
+        final BigDecimal price = productDto.getPrice();
+        if (Objects.isNull(price) || price.signum() < 0) {
+            return "Price must be a non-negative amount";
+        }
+        if (price.stripTrailingZeros().scale() > PriceUtils.MINOR_UNIT_SCALE) {
+            return String.format("Price must have at most %d decimal places", PriceUtils.MINOR_UNIT_SCALE);
+        }
+        if (Objects.isNull(productDto.getProductId())
+                && (Objects.isNull(productDto.getQuantity()) || productDto.getQuantity() < 0)) {
+            return "Quantity of a new product must be a non-negative number";
+        }
+        return null;
+    }
+
+    private static BufferedReader newReader(InputStream inputStream) {
+        return new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+
+    @FunctionalInterface
+    private interface RowParser {
+
+        ProductDto parse(String line) throws IOException;
+    }
+
+    private class Import {
+
+        private final List<Product> updates = new ArrayList<>();
+
+        private final List<Long> updateLines = new ArrayList<>();
+
+        private final List<Product> inserts = new ArrayList<>();
+
+        private final List<ProductImportErrorDto> errors = new ArrayList<>();
+
+        private long inserted;
+
+        private long updated;
+
+        private long failed;
+
+        void add(long lineNumber, Product product) {
+            if (Objects.isNull(product.getId())) {
+                inserts.add(product);
+            }
+            else {
+                updates.add(product);
+                updateLines.add(lineNumber);
+            }
+        }
+
+        int pendingCount() {
+            return updates.size() + inserts.size();
+        }
+
+        void fail(long lineNumber, String message) {
+            failed++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(ProductImportErrorDto.builder().line(lineNumber).message(message).build());
+            }
+        }
+
+        void flush() {
+            if (pendingCount() > 0) {
+                transactionTemplate.executeWithoutResult(status -> writeBatch());
+            }
+            updates.clear();
+            updateLines.clear();
+            inserts.clear();
+        }
+
+        private void writeBatch() {
+            final List<Long> writtenIds = new ArrayList<>(pendingCount());
+            if (!updates.isEmpty()) {
+                final Set<Long> missingProductIds = new HashSet<>(productRepository.updateCatalog(updates));
+                for (int i = 0; i < updates.size(); i++) {
+                    final Long productId = updates.get(i).getId();
+                    if (missingProductIds.contains(productId)) {
+                        fail(updateLines.get(i), String.format("Product with id [%d] does not exist", productId));
+                    }
+                    else {
+                        updated++;
+                        writtenIds.add(productId);
+                    }
+                }
+                productCatalogCache.invalidateAfterCommit(List.copyOf(writtenIds));
+            }
+            if (!inserts.isEmpty()) {
+                writtenIds.addAll(productRepository.insertProducts(inserts));
+                inserted += inserts.size();
+            }
+            stateJournal.recordProducts(writtenIds);
+        }
+
+        ProductImportResultDto getResult() {
+            return ProductImportResultDto.builder()
+                                         .inserted(inserted)
+                                         .updated(updated)
+                                         .failed(failed)
+                                         .errors(errors)
+                                         .build();
+        }
+    }
+}
@@ -1,12 +1,28 @@
 package rohlik.casares.casestudy.service.impl;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import rohlik.casares.casestudy.cache.ProductCatalogCache;
 import rohlik.casares.casestudy.dto.ProductDto;
+import rohlik.casares.casestudy.dto.StockAdjustmentDto;
+import rohlik.casares.casestudy.exception.InvalidRequestException;
 import rohlik.casares.casestudy.exception.ProductNotFoundException;
+import rohlik.casares.casestudy.exception.StockExceededException;
+import rohlik.casares.casestudy.journal.StateJournal;
 import rohlik.casares.casestudy.model.Product;
 import rohlik.casares.casestudy.repository.ProductRepository;
+import rohlik.casares.casestudy.service.InventoryService;
 import rohlik.casares.casestudy.service.ProductService;
 import rohlik.casares.casestudy.utils.ProductMapper;
 
@@ -16,42 +32,143 @@ public class ProductServiceImpl implements ProductService {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    @Autowired
+    private StateJournal stateJournal;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public ProductDto createProduct(ProductDto productDto) {
         Product product = ProductMapper.mapToProduct(productDto);
         final Product savedProduct = productRepository.save(product);
+        stateJournal.recordProducts(List.of(savedProduct.getId()));
+        inventoryService.onStockReset(savedProduct.getId(), savedProduct.getQuantity());
+        productCatalogCache.invalidateAfterCommit(List.of(savedProduct.getId()));
         return ProductMapper.mapToProductDto(savedProduct);
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public ProductDto updateProduct(Long id, ProductDto productDto) throws ProductNotFoundException {
-        final Product productInDatabase = productRepository.findById(id)
-                                                           .orElseThrow(() -> new ProductNotFoundException(
-                                                                   String.format(
-                                                                           "Product with id [%d] does not exist",
-                                                                           productDto.getProductId()
-                                                                   )));
-        Product product = ProductMapper.mapToProduct(productDto)
-                                       .toBuilder()
-                                       .id(productInDatabase.getId())
-                                       .build();
-        final Product savedProduct = productRepository.save(product);
-        return ProductMapper.mapToProductDto(savedProduct);
+        final Product product = ProductMapper.mapToProduct(productDto).toBuilder().id(id).build();
+        // Only name and price are written, so concurrent reservations on the product do not conflict with the update
+        if (!productRepository.updateCatalog(List.of(product)).isEmpty()) {
+            throw new ProductNotFoundException(String.format("Product with id [%d] does not exist", id));
+        }
+        stateJournal.recordProducts(List.of(id));
+        productCatalogCache.invalidateAfterCommit(List.of(id));
+        final Product savedProduct = productRepository.findById(id)
+                                                      .orElseThrow(() -> new ProductNotFoundException(String.format(
+                                                              "Product with id [%d] does not exist", id)));
+        return ProductMapper.mapToProductDto(savedProduct.toBuilder()
+                                                         .quantity(inventoryService.getQuantities(List.of(id))
+                                                                                   .get(id))
+                                                         .build());
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public ProductDto adjustStock(Long productId, Integer delta)
+            throws ProductNotFoundException, StockExceededException, InvalidRequestException {
+
+        if (Objects.isNull(delta)) {
+            throw new InvalidRequestException("Stock adjustment must have a delta");
+        }
+        applyAdjustments(Map.of(productId, delta));
+        final Product product = productRepository.findById(productId)
+                                                 .orElseThrow(() -> new ProductNotFoundException(String.format(
+                                                         "Product with id [%d] does not exist", productId)));
+        return ProductMapper.mapToProductDto(product.toBuilder()
+                                                    .quantity(inventoryService.getQuantities(List.of(productId))
+                                                                              .get(productId))
+                                                    .build());
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void adjustStock(List<StockAdjustmentDto> adjustments)
+            throws ProductNotFoundException, StockExceededException, InvalidRequestException {
+
+        if (Objects.isNull(adjustments)) {
+            throw new InvalidRequestException("Stock adjustments must be a list");
+        }
+        final Map<Long, Integer> deltas = new LinkedHashMap<>();
+        for (StockAdjustmentDto adjustment : adjustments) {
+            if (Objects.isNull(adjustment)
+                    || Objects.isNull(adjustment.getProductId())
+                    || Objects.isNull(adjustment.getDelta())) {
+                throw new InvalidRequestException("Every stock adjustment must have a productId and a delta");
+            }
+            try {
+                deltas.merge(adjustment.getProductId(), adjustment.getDelta(), Math::addExact);
+            }
+            catch (ArithmeticException e) {
+                throw new InvalidRequestException(String.format(
+                        "Stock adjustments of product [%d] add up beyond the quantity range",
+                        adjustment.getProductId()));
+            }
+        }
+        applyAdjustments(deltas);
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public void deleteProduct(Long productId) throws ProductNotFoundException {
         Product product = productRepository.findById(productId)
                                            .orElseThrow(() -> new ProductNotFoundException(
                                                    String.format("Product with id [%d] does not exist", productId)));
         productRepository.delete(product);
+        stateJournal.recordProducts(List.of(productId));
+        inventoryService.onProductDeleted(productId);
+        productCatalogCache.invalidateAfterCommit(List.of(productId));
+    }
+
+    private void applyAdjustments(Map<Long, Integer> deltas) throws ProductNotFoundException, StockExceededException {
+        final List<Long> notAdjusted = inventoryService.adjust(deltas);
+        if (notAdjusted.isEmpty()) {
+            stateJournal.recordProducts(deltas.keySet());
+            return;
+        }
+        final Map<Long, Integer> quantities = inventoryService.getQuantities(notAdjusted);
+        final List<Long> missingProductIds = notAdjusted.stream()
+                                                        .filter(productId -> !quantities.containsKey(productId))
+                                                        .collect(Collectors.toList());
+        if (!missingProductIds.isEmpty()) {
+            throw new ProductNotFoundException(
+                    String.format("Products with ids %s do not exist", missingProductIds));
+        }
+        throw new StockExceededException(
+                String.format("Stock adjustment would make the quantity negative for products %s", notAdjusted));
     }
 
     @Override
     public List<ProductDto> findAll() {
-        final List<Product> productList = productRepository.findAll();
-        return ProductMapper.mapToProductDtoList(productList);
+        return ProductMapper.mapToProductDtoList(productRepository.findAll());
+    }
+
+    @Override
+    public List<ProductDto> findPage(Long afterId, int size) {
+        return ProductMapper.mapToProductDtoList(productRepository.findByIdGreaterThanOrderByIdAsc(
+                Objects.isNull(afterId) ? 0L : afterId, PageRequest.of(0, size)));
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<ProductDto> consumer) {
+        try (Stream<Product> products = productRepository.streamAll()) {
+            products.forEach(product -> {
+                consumer.accept(ProductMapper.mapToProductDto(product));
+                entityManager.detach(product);
+            });
+        }
+    }
 
 }
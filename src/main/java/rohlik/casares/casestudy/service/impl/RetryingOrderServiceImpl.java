@@ -0,0 +1,179 @@
+package rohlik.casares.casestudy.service.impl;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.persistence.OptimisticLockException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import rohlik.casares.casestudy.admission.OrderAdmission;
+import rohlik.casares.casestudy.dto.BatchOrderResultDto;
+import rohlik.casares.casestudy.dto.OrderDto;
+import rohlik.casares.casestudy.exception.IdempotencyKeyConflictException;
+import rohlik.casares.casestudy.exception.InvalidRequestException;
+import rohlik.casares.casestudy.exception.OrderNotFoundException;
+import rohlik.casares.casestudy.exception.OrderRejectedException;
+import rohlik.casares.casestudy.exception.OrderServiceException;
+import rohlik.casares.casestudy.exception.OrderStatusOperationException;
+import rohlik.casares.casestudy.exception.StockExceededException;
+import rohlik.casares.casestudy.idempotency.IdempotencyKeyStore;
+import rohlik.casares.casestudy.metrics.OrderMetrics;
+import rohlik.casares.casestudy.model.OrderStatus;
+import rohlik.casares.casestudy.service.OrderService;
+
+/**
+ * Retries status changes that lost an optimistic lock race, with a bounded number of attempts and jittered
+ * exponential backoff. Each attempt runs in its own transaction, so calls made inside a caller's transaction are not
+ * retried and the conflict is left to the caller. Order placement only inserts and updates stock conditionally, so it
+ * has no version to conflict on and is not retried; it goes through {@link OrderAdmission} first, before the
+ * {@link IdempotencyKeyStore} opens a transaction, so orders waiting for admission do not hold a connection.
+ */
+@Primary
+@Service
+public class RetryingOrderServiceImpl implements OrderService {
+
+    private final OrderServiceImpl orderService;
+
+    private final OrderMetrics orderMetrics;
+
+    private final OrderAdmission orderAdmission;
+
+    private final IdempotencyKeyStore idempotencyKeyStore;
+
+    private final int maxAttempts;
+
+    private final Duration backoff;
+
+    private final Duration maxBackoff;
+
+    public RetryingOrderServiceImpl(
+            OrderServiceImpl orderService,
+            OrderMetrics orderMetrics,
+            OrderAdmission orderAdmission,
+            IdempotencyKeyStore idempotencyKeyStore,
+            @Value("${orders.optimistic-lock.max-attempts:3}") int maxAttempts,
+            @Value("${orders.optimistic-lock.backoff:10ms}") Duration backoff,
+            @Value("${orders.optimistic-lock.max-backoff:200ms}") Duration maxBackoff
+    ) {
+        this.orderService = orderService;
+        this.orderMetrics = orderMetrics;
+        this.orderAdmission = orderAdmission;
+        this.idempotencyKeyStore = idempotencyKeyStore;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoff = backoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    @Override
+    public OrderDto createOrder(OrderDto orderDto) throws OrderServiceException {
+        try (OrderAdmission.Permit ignored = admit(orderDto)) {
+            return orderService.createOrder(orderDto);
+        }
+    }
+
+    @Override
+    public OrderDto createOrder(OrderDto orderDto, String idempotencyKey)
+            throws OrderServiceException, IdempotencyKeyConflictException {
+        if (Objects.isNull(idempotencyKey)) {
+            return createOrder(orderDto);
+        }
+        // A replay must not be turned away because the stock it took has since run out
+        final Optional<OrderDto> created = idempotencyKeyStore.findCreated(idempotencyKey);
+        if (created.isPresent()) {
+            return created.get();
+        }
+        try (OrderAdmission.Permit ignored = admit(orderDto)) {
+            return idempotencyKeyStore.execute(idempotencyKey, () -> orderService.createOrder(orderDto));
+        }
+    }
+
+    @Override
+    public List<BatchOrderResultDto> createOrders(List<OrderDto> orderDtos) {
+        return orderService.createOrders(orderDtos);
+    }
+
+    @Override
+    public OrderDto findOrder(Long orderId) throws OrderNotFoundException {
+        return orderService.findOrder(orderId);
+    }
+
+    @Override
+    public List<OrderDto> findOrders(
+            OrderStatus status, Instant from, Instant to, Instant afterCreatedAt, Long afterId, int size
+    ) {
+        return orderService.findOrders(status, from, to, afterCreatedAt, afterId, size);
+    }
+
+    @Override
+    public OrderDto cancelOrder(Long orderId) throws OrderNotFoundException, OrderStatusOperationException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return orderService.cancelOrder(orderId);
+            }
+            catch (RuntimeException e) {
+                retryOrThrow(OrderMetrics.CANCEL, attempt, e);
+            }
+        }
+    }
+
+    @Override
+    public OrderDto payOrder(Long orderId) throws OrderNotFoundException, OrderStatusOperationException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return orderService.payOrder(orderId);
+            }
+            catch (RuntimeException e) {
+                retryOrThrow(OrderMetrics.PAY, attempt, e);
+            }
+        }
+    }
+
+    private OrderAdmission.Permit admit(OrderDto orderDto) throws OrderServiceException {
+        try {
+            OrderServiceImpl.checkOrderLines(orderDto.getProducts());
+            return orderAdmission.admit(orderDto);
+        }
+        catch (InvalidRequestException | StockExceededException | OrderRejectedException e) {
+            throw new OrderServiceException(e);
+        }
+    }
+
+    /**
+     * Returns after backing off if the failure is an optimistic lock conflict that may be retried, otherwise rethrows
+     * it.
+     */
+    private <E extends Exception> void retryOrThrow(String operation, int attempt, E exception) throws E {
+        if (!isOptimisticLockConflict(exception)) {
+            throw exception;
+        }
+        orderMetrics.conflict(operation);
+        if (attempt >= maxAttempts || TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw exception;
+        }
+
+        final long maxDelay = Math.min(backoff.toMillis() << (attempt - 1), maxBackoff.toMillis());
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(maxDelay + 1));
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw exception;
+        }
+        orderMetrics.retry(operation);
+    }
+
+    private static boolean isOptimisticLockConflict(Throwable exception) {
+        for (Throwable cause = exception; Objects.nonNull(cause); cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockingFailureException || cause instanceof OptimisticLockException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
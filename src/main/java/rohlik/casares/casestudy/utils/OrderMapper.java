@@ -1,14 +1,25 @@
 package rohlik.casares.casestudy.utils;
 
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
+import rohlik.casares.casestudy.cache.CatalogProduct;
+import rohlik.casares.casestudy.dto.CompactOrderDto;
+import rohlik.casares.casestudy.dto.CompactOrderLineDto;
+import rohlik.casares.casestudy.dto.CompactOrderPageDto;
+import rohlik.casares.casestudy.dto.CompactProductDto;
 import rohlik.casares.casestudy.dto.OrderDto;
+import rohlik.casares.casestudy.dto.OrderEventDto;
 import rohlik.casares.casestudy.dto.OrderProductDto;
+import rohlik.casares.casestudy.dto.ProductDto;
 import rohlik.casares.casestudy.model.Order;
 import rohlik.casares.casestudy.model.OrderProduct;
+import rohlik.casares.casestudy.model.OutboxEvent;
 import rohlik.casares.casestudy.model.Product;
+import rohlik.casares.casestudy.repository.OrderLineDetailView;
+import rohlik.casares.casestudy.repository.OrderSummary;
 
 public class OrderMapper {
 
@@ -20,9 +31,82 @@ public class OrderMapper {
                        .products(mapToOrderProductDtoList(order.getOrderProducts()))
                        .total(order.getTotal())
                        .status(order.getStatus())
+                       .createdAt(order.getCreatedAt())
+                       .expiresAt(order.getExpiresAt())
                        .build();
     }
 
+    /**
+     * Maps an order whose lines reference products that are not loaded, taking their details from the catalog and
+     * their stock from {@code quantities}.
+     */
+    public static OrderDto mapToOrderDto(
+            Order order, Map<Long, CatalogProduct> catalogProducts, Map<Long, Integer> quantities
+    ) {
+        return OrderDto.builder()
+                       .orderId(order.getId())
+                       .products(order.getOrderProducts()
+                                      .stream()
+                                      .map(op -> OrderProductDto.builder()
+                                                                .product(ProductMapper.mapToProductDto(
+                                                                        catalogProducts.get(op.getProduct().getId()),
+                                                                        quantities.get(op.getProduct().getId())))
+                                                                .productQuantity(op.getProductQuantity())
+                                                                .build())
+                                      .collect(Collectors.toList()))
+                       .total(order.getTotal())
+                       .status(order.getStatus())
+                       .createdAt(order.getCreatedAt())
+                       .expiresAt(order.getExpiresAt())
+                       .build();
+    }
+
+    public static OrderDto mapToOrderDto(OrderSummary order, List<OrderLineDetailView> lines) {
+        return OrderDto.builder()
+                       .orderId(order.getId())
+                       .products(lines.stream()
+                                      .map(OrderMapper::mapToOrderProductDto)
+                                      .collect(Collectors.toList()))
+                       .total(order.getTotal())
+                       .status(order.getStatus())
+                       .createdAt(order.getCreatedAt())
+                       .expiresAt(order.getExpiresAt())
+                       .build();
+    }
+
+    public static OrderProductDto mapToOrderProductDto(OrderLineDetailView line) {
+        return OrderProductDto.builder()
+                              .product(ProductDto.builder()
+                                                 .productId(line.getProductId())
+                                                 .name(line.getProductName())
+                                                 .price(line.getProductPrice())
+                                                 .build())
+                              .productQuantity(line.getQuantity())
+                              .build();
+    }
+
+    public static CompactOrderDto mapToCompactOrderDto(OrderDto order) {
+        return mapToCompactOrderDto(order, true);
+    }
+
+    public static CompactOrderPageDto mapToCompactOrderPageDto(List<OrderDto> orders) {
+        return CompactOrderPageDto.builder()
+                                  .orders(orders.stream()
+                                                .map(order -> mapToCompactOrderDto(order, false))
+                                                .collect(Collectors.toList()))
+                                  .products(mapToCompactProducts(orders))
+                                  .build();
+    }
+
+    public static OrderEventDto mapToOrderEventDto(OutboxEvent event) {
+        return OrderEventDto.builder()
+                            .eventId(event.getId())
+                            .orderId(event.getOrderId())
+                            .status(event.getStatus())
+                            .occurredAt(event.getCreatedAt())
+                            .build();
+    }
+
     public static List<OrderProductDto> mapToOrderProductDtoList(List<OrderProduct> orderProducts) {
         return Objects.isNull(orderProducts) ? null : orderProducts.stream()
                                                                    .map(OrderMapper::mapToOrderProductDto)
@@ -66,4 +150,39 @@ public class OrderMapper {
                            .productQuantity(orderProductDto.getProductQuantity())
                            .build();
     }
+
+    private static CompactOrderDto mapToCompactOrderDto(OrderDto order, boolean withProducts) {
+        final boolean hasLines = Objects.nonNull(order.getProducts());
+        return CompactOrderDto.builder()
+                              .orderId(order.getOrderId())
+                              .status(order.getStatus())
+                              .total(order.getTotal())
+                              .createdAt(order.getCreatedAt())
+                              .expiresAt(order.getExpiresAt())
+                              .lines(hasLines ? mapToCompactOrderLineDtoList(order.getProducts()) : null)
+                              .products(hasLines && withProducts ? mapToCompactProducts(List.of(order)) : null)
+                              .build();
+    }
+
+    private static List<CompactOrderLineDto> mapToCompactOrderLineDtoList(List<OrderProductDto> orderProducts) {
+        return orderProducts.stream()
+                            .map(op -> CompactOrderLineDto.builder()
+                                                          .productId(op.getProduct().getProductId())
+                                                          .quantity(op.getProductQuantity())
+                                                          .build())
+                            .collect(Collectors.toList());
+    }
+
+    private static Map<Long, CompactProductDto> mapToCompactProducts(List<OrderDto> orders) {
+        final Map<Long, CompactProductDto> products = new LinkedHashMap<>();
+        orders.stream()
+              .filter(order -> Objects.nonNull(order.getProducts()))
+              .flatMap(order -> order.getProducts().stream())
+              .map(OrderProductDto::getProduct)
+              .forEach(product -> products.putIfAbsent(product.getProductId(), CompactProductDto.builder()
+                                                                                                .name(product.getName())
+                                                                                                .price(product.getPrice())
+                                                                                                .build()));
+        return products;
+    }
 }
@@ -0,0 +1,22 @@
+package rohlik.casares.casestudy.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Objects;
+
+public class PriceUtils {
+
+    public static final int MINOR_UNIT_SCALE = 2;
+
+    private PriceUtils(){}
+
+    public static long toMinorUnits(BigDecimal price) {
+        return Objects.isNull(price)
+                ? 0L
+                : price.setScale(MINOR_UNIT_SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal fromMinorUnits(long amount) {
+        return BigDecimal.valueOf(amount, MINOR_UNIT_SCALE);
+    }
+}
@@ -2,6 +2,7 @@ package rohlik.casares.casestudy.utils;
 
 import java.util.List;
 import java.util.stream.Collectors;
+import rohlik.casares.casestudy.cache.CatalogProduct;
 import rohlik.casares.casestudy.dto.ProductDto;
 import rohlik.casares.casestudy.model.Product;
 
@@ -18,6 +19,23 @@ public class ProductMapper {
                       .build();
     }
 
+    public static Product mapToProduct(CatalogProduct catalogProduct) {
+        return Product.builder()
+                      .id(catalogProduct.getId())
+                      .name(catalogProduct.getName())
+                      .price(catalogProduct.getPrice())
+                      .build();
+    }
+
+    public static CatalogProduct mapToCatalogProduct(Product product) {
+        return CatalogProduct.builder()
+                             .id(product.getId())
+                             .name(product.getName())
+                             .price(product.getPrice())
+                             .priceMinor(PriceUtils.toMinorUnits(product.getPrice()))
+                             .build();
+    }
+
     public static ProductDto mapToProductDto(Product product) {
         return ProductDto.builder()
                          .productId(product.getId())
@@ -28,6 +46,15 @@ public class ProductMapper {
 
     }
 
+    public static ProductDto mapToProductDto(CatalogProduct catalogProduct, Integer quantity) {
+        return ProductDto.builder()
+                         .productId(catalogProduct.getId())
+                         .name(catalogProduct.getName())
+                         .price(catalogProduct.getPrice())
+                         .quantity(quantity)
+                         .build();
+    }
+
     public static List<ProductDto> mapToProductDtoList(List<Product> source) {
         return source
                 .stream()
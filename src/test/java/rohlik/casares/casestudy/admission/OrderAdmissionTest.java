@@ -0,0 +1,96 @@
+package rohlik.casares.casestudy.admission;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalInt;
+import org.junit.jupiter.api.Test;
+import rohlik.casares.casestudy.dto.OrderDto;
+import rohlik.casares.casestudy.dto.OrderProductDto;
+import rohlik.casares.casestudy.dto.ProductDto;
+import rohlik.casares.casestudy.exception.OrderRejectedException;
+import rohlik.casares.casestudy.exception.ProductSoldOutException;
+import rohlik.casares.casestudy.exception.StockExceededException;
+
+class OrderAdmissionTest {
+
+    private final AvailabilityIndex availabilityIndex = new AvailabilityIndex(10);
+
+    @Test
+    void testAdmit_rejectsBeyondConcurrencyLimit() throws Exception {
+        final OrderAdmission orderAdmission = new OrderAdmission(availabilityIndex, 1, Duration.ofMillis(10));
+
+        final OrderAdmission.Permit permit = orderAdmission.admit(orderOf(orderLine(1L, 1)));
+        assertThrows(OrderRejectedException.class, () -> orderAdmission.admit(orderOf(orderLine(1L, 1))));
+
+        permit.close();
+        orderAdmission.admit(orderOf(orderLine(1L, 1))).close();
+    }
+
+    @Test
+    void testAdmit_rejectsSoldOutProductUntilRestocked() throws Exception {
+        final OrderAdmission orderAdmission = new OrderAdmission(availabilityIndex, 0, Duration.ZERO);
+        availabilityIndex.record(1L, 0, availabilityIndex.epoch(1L));
+
+        assertThrows(ProductSoldOutException.class, () -> orderAdmission.admit(orderOf(orderLine(1L, 1))));
+        orderAdmission.admit(orderOf(orderLine(2L, 1))).close();
+
+        availabilityIndex.restocked(List.of(1L));
+        orderAdmission.admit(orderOf(orderLine(1L, 1))).close();
+    }
+
+    @Test
+    void testAdmit_rejectsMoreThanLowStock() throws Exception {
+        final OrderAdmission orderAdmission = new OrderAdmission(availabilityIndex, 0, Duration.ZERO);
+        availabilityIndex.record(1L, 3, availabilityIndex.epoch(1L));
+
+        final StockExceededException e = assertThrows(StockExceededException.class,
+                () -> orderAdmission.admit(orderOf(orderLine(1L, 2), orderLine(1L, 2))));
+        assertFalse(e instanceof ProductSoldOutException);
+        orderAdmission.admit(orderOf(orderLine(1L, 3))).close();
+    }
+
+    @Test
+    void testRecord_keepsLowestBoundOfLatestEpoch() {
+        final long epoch = availabilityIndex.epoch(1L);
+        availabilityIndex.record(1L, 11, epoch);
+        assertEquals(OptionalInt.empty(), availabilityIndex.availableAtMost(1L));
+
+        availabilityIndex.record(1L, 4, epoch);
+        availabilityIndex.record(1L, 6, epoch);
+        assertEquals(OptionalInt.of(4), availabilityIndex.availableAtMost(1L));
+
+        availabilityIndex.restocked(List.of(1L));
+        assertEquals(OptionalInt.empty(), availabilityIndex.availableAtMost(1L));
+        availabilityIndex.record(1L, 8, availabilityIndex.epoch(1L));
+        availabilityIndex.record(1L, 2, epoch);
+        assertEquals(OptionalInt.of(8), availabilityIndex.availableAtMost(1L));
+    }
+
+    @Test
+    void testRecord_ignoredAfterConcurrentRestock() {
+        final long epoch = availabilityIndex.epoch(1L);
+        availabilityIndex.restocked(List.of(1L));
+
+        availabilityIndex.record(1L, 0, epoch);
+
+        assertFalse(availabilityIndex.isSoldOut(1L));
+        availabilityIndex.record(1L, 0, availabilityIndex.epoch(1L));
+        assertTrue(availabilityIndex.isSoldOut(1L));
+    }
+
+    private static OrderDto orderOf(OrderProductDto... lines) {
+        return OrderDto.builder().products(List.of(lines)).build();
+    }
+
+    private static OrderProductDto orderLine(Long productId, int quantity) {
+        return OrderProductDto.builder()
+                              .product(ProductDto.builder().productId(productId).build())
+                              .productQuantity(quantity)
+                              .build();
+    }
+}
@@ -0,0 +1,88 @@
+package rohlik.casares.casestudy.admission.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+import rohlik.casares.casestudy.dto.OrderDto;
+import rohlik.casares.casestudy.dto.OrderProductDto;
+import rohlik.casares.casestudy.dto.ProductDto;
+import rohlik.casares.casestudy.exception.OrderServiceException;
+import rohlik.casares.casestudy.exception.ProductSoldOutException;
+import rohlik.casares.casestudy.exception.StockExceededException;
+import rohlik.casares.casestudy.repository.OrderRepository;
+import rohlik.casares.casestudy.repository.ProductRepository;
+import rohlik.casares.casestudy.service.OrderService;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.datasource.url=jdbc:h2:mem:orderAdmission"
+)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class OrderAdmissionIntegrationTest {
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @LocalServerPort
+    int port;
+
+    @Test
+    void testCreateOrder_soldOutProductRejectedUntilRestocked() throws Exception {
+        final OrderDto order = orderService.createOrder(orderOf(2L, 8));
+        final long orderCount = orderRepository.count();
+
+        final OrderServiceException soldOut = assertThrows(
+                OrderServiceException.class, () -> orderService.createOrder(orderOf(2L, 1)));
+        assertEquals(ProductSoldOutException.class, soldOut.getCause().getClass());
+        final HttpClientErrorException response = assertThrows(
+                HttpClientErrorException.class,
+                () -> new RestTemplate().postForObject(
+                        "http://localhost:" + port + "/api/orders", orderOf(2L, 1), OrderDto.class)
+        );
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        assertEquals(orderCount, orderRepository.count());
+        orderService.createOrder(orderOf(1L, 1));
+
+        orderService.cancelOrder(order.getOrderId());
+        orderService.createOrder(orderOf(2L, 1));
+    }
+
+    @Test
+    void testCreateOrder_moreThanLowStockRejectedWithoutReservation() throws Exception {
+        orderService.createOrder(orderOf(1L, 3));
+
+        final OrderServiceException exceeded = assertThrows(
+                OrderServiceException.class, () -> orderService.createOrder(orderOf(1L, 8)));
+        assertEquals(StockExceededException.class, exceeded.getCause().getClass());
+        // Rejected by admission, the reservation would have named the product
+        assertTrue(exceeded.getCause().getMessage().contains("ids [1]"));
+
+        orderService.createOrder(orderOf(1L, 7));
+        assertEquals(0, productRepository.findById(1L).orElseThrow().getQuantity());
+    }
+
+    private static OrderDto orderOf(Long productId, int quantity) {
+        return OrderDto.builder()
+                       .products(List.of(OrderProductDto.builder()
+                                                        .product(ProductDto.builder().productId(productId).build())
+                                                        .productQuantity(quantity)
+                                                        .build()))
+                       .build();
+    }
+}
@@ -0,0 +1,140 @@
+package rohlik.casares.casestudy.cache.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import rohlik.casares.casestudy.cache.CatalogProduct;
+import rohlik.casares.casestudy.cache.ProductCatalogCache;
+import rohlik.casares.casestudy.dto.ProductDto;
+import rohlik.casares.casestudy.exception.ProductNotFoundException;
+import rohlik.casares.casestudy.repository.ProductRepository;
+import rohlik.casares.casestudy.service.ProductService;
+
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class ProductCatalogCacheIntegrationTest {
+
+    @Autowired
+    ProductCatalogCache productCatalogCache;
+
+    @Autowired
+    ProductService productService;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Test
+    void testGetAll_readThroughAndRecordsHits() {
+        assertEquals("Apple", productCatalogCache.getAll(List.of(1L)).get(1L).getName());
+        assertEquals("Apple", productCatalogCache.getAll(List.of(1L)).get(1L).getName());
+        assertFalse(productCatalogCache.getAll(List.of(999L)).containsKey(999L));
+
+        assertEquals(1, cacheGets("hit"));
+        assertEquals(2, cacheGets("miss"));
+    }
+
+    @Test
+    void testUpdateProduct_invalidatesEntry() throws ProductNotFoundException {
+        productCatalogCache.getAll(List.of(1L));
+
+        productService.updateProduct(1L, ProductDto.builder()
+                                                   .name("Green Apple")
+                                                   .quantity(10)
+                                                   .price(new BigDecimal("4.00"))
+                                                   .build());
+
+        assertEquals("Green Apple", productCatalogCache.getAll(List.of(1L)).get(1L).getName());
+        assertEquals(new BigDecimal("4.00"), productCatalogCache.getAll(List.of(1L)).get(1L).getPrice());
+    }
+
+    @Test
+    void testUpdateProduct_invalidatesEntryReadBeforeCommit() {
+        transactionTemplate.executeWithoutResult(status -> {
+            try {
+                productService.updateProduct(1L, ProductDto.builder()
+                                                           .name("Green Apple")
+                                                           .price(new BigDecimal("4.00"))
+                                                           .build());
+            }
+            catch (ProductNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+            // Another request loads the committed row while the update is still open
+            assertEquals("Apple", CompletableFuture.supplyAsync(() -> productCatalogCache.getAll(List.of(1L)))
+                                                   .join()
+                                                   .get(1L)
+                                                   .getName());
+        });
+
+        assertEquals("Green Apple", productCatalogCache.getAll(List.of(1L)).get(1L).getName());
+    }
+
+    @Test
+    void testUpdateProduct_dropsEntryLoadedBeforeCommitAndStoredAfter() throws Exception {
+        final CountDownLatch read = new CountDownLatch(1);
+        final CountDownLatch committed = new CountDownLatch(1);
+        final AtomicBoolean holdLoad = new AtomicBoolean(true);
+        final ProductRepository holdingRepository = (ProductRepository) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[]{ProductRepository.class}, (proxy, method, args) -> {
+                    final Object result = method.invoke(productRepository, args);
+                    if ("findAllById".equals(method.getName()) && holdLoad.getAndSet(false)) {
+                        read.countDown();
+                        committed.await(10, TimeUnit.SECONDS);
+                    }
+                    return result;
+                });
+        final ProductCatalogCache cache = new ProductCatalogCache(
+                holdingRepository, new SimpleMeterRegistry(), 100, Duration.ofMinutes(10));
+
+        // Another request reads the old row, and only stores it once the update has committed and invalidated it
+        final CompletableFuture<Map<Long, CatalogProduct>> staleLoad =
+                CompletableFuture.supplyAsync(() -> cache.getAll(List.of(1L)));
+        assertTrue(read.await(10, TimeUnit.SECONDS));
+        transactionTemplate.executeWithoutResult(status -> {
+            try {
+                productService.updateProduct(1L, ProductDto.builder()
+                                                           .name("Green Apple")
+                                                           .price(new BigDecimal("4.00"))
+                                                           .build());
+            }
+            catch (ProductNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+            cache.invalidateAfterCommit(List.of(1L));
+        });
+        committed.countDown();
+        assertEquals("Apple", staleLoad.get(10, TimeUnit.SECONDS).get(1L).getName());
+
+        assertEquals("Green Apple", cache.getAll(List.of(1L)).get(1L).getName());
+    }
+
+    private double cacheGets(String result) {
+        return meterRegistry.get("cache.gets")
+                            .tags("cache", "productCatalog", "result", result)
+                            .functionCounter()
+                            .count();
+    }
+}
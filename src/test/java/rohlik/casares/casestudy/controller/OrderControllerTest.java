@@ -3,10 +3,15 @@ package rohlik.casares.casestudy.controller;
 import static org.junit.jupiter.api.Assertions.*;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
 import org.hibernate.mapping.Collection;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -14,11 +19,20 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
+import rohlik.casares.casestudy.MessageConverterConfig;
+import rohlik.casares.casestudy.dto.BatchOrderResultDto;
+import rohlik.casares.casestudy.dto.CompactOrderDto;
+import rohlik.casares.casestudy.dto.CompactOrderPageDto;
 import rohlik.casares.casestudy.dto.OrderDto;
 import rohlik.casares.casestudy.dto.OrderProductDto;
 import rohlik.casares.casestudy.dto.ProductDto;
@@ -88,6 +102,40 @@ class OrderControllerTest {
         assertEquals(countAfter, countBefore + 1);
     }
 
+    @Test
+    void createOrder_withIdempotencyKey_shouldReplayOriginalOrder() throws IOException {
+        final long countBefore = orderRepository.count();
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set(OrderController.IDEMPOTENCY_KEY_HEADER, "retry-1");
+        final HttpEntity<OrderDto> request = new HttpEntity<>(getOrderDto(), headers);
+
+        final OrderDto orderCreated = restTemplate.postForObject(baseUrl, request, OrderDto.class);
+        final OrderDto orderReplayed = restTemplate.postForObject(baseUrl, request, OrderDto.class);
+
+        assertNotNull(orderCreated);
+        assertEquals(orderCreated, orderReplayed);
+        assertEquals(countBefore + 1, orderRepository.count());
+        assertEquals(7, productRepository.findById(1L).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void createOrders_shouldCreateBatch() throws IOException {
+        final long countBefore = orderRepository.count();
+
+        final BatchOrderResultDto[] results = restTemplate.postForObject(
+                baseUrl + "/batch",
+                List.of(getOrderDto(), getOrderDtoProductNotFound(), getOrderDto()),
+                BatchOrderResultDto[].class
+        );
+
+        assertNotNull(results);
+        assertEquals(3, results.length);
+        assertNotNull(results[0].getOrder().getOrderId());
+        assertNotNull(results[1].getError());
+        assertNotNull(results[2].getOrder().getOrderId());
+        assertEquals(countBefore + 2, orderRepository.count());
+    }
+
     @Test
     void createOrder_errorProductNotFound() throws IOException {
 
@@ -96,6 +144,141 @@ class OrderControllerTest {
         assertThrows(HttpServerErrorException.InternalServerError.class, () -> restTemplate.postForObject(baseUrl, orderDto, OrderDto.class));
     }
 
+    @Test
+    void createOrder_invalidQuantity_shouldRejectWithBadRequest() {
+        for (Integer quantity : Arrays.asList(null, 0, -3)) {
+            final OrderDto orderDto = OrderDto.builder()
+                                              .products(List.of(OrderProductDto.builder()
+                                                                               .product(ProductDto.builder()
+                                                                                                  .productId(1L)
+                                                                                                  .build())
+                                                                               .productQuantity(quantity)
+                                                                               .build()))
+                                              .build();
+
+            assertThrows(HttpClientErrorException.BadRequest.class, () -> restTemplate.postForObject(baseUrl, orderDto, OrderDto.class));
+        }
+        assertEquals(10, productRepository.findById(1L).orElseThrow().getQuantity());
+    }
+
+
+    @Test
+    void getOrder_shouldReturnOrderWithLines() throws IOException, OrderServiceException {
+        final OrderDto order = orderService.createOrder(getOrderDto());
+
+        final OrderDto orderFound = restTemplate.getForObject(baseUrl + "/" + order.getOrderId(), OrderDto.class);
+
+        assertNotNull(orderFound);
+        assertEquals(order.getOrderId(), orderFound.getOrderId());
+        assertEquals(OrderStatus.CREATED, orderFound.getStatus());
+        assertEquals(0, order.getTotal().compareTo(orderFound.getTotal()));
+        assertNotNull(orderFound.getCreatedAt());
+        assertEquals(3, orderFound.getProducts().size());
+        assertEquals("Apple", orderFound.getProducts().get(0).getProduct().getName());
+    }
+
+    @Test
+    void getOrder_notFound() {
+
+        assertThrows(HttpClientErrorException.NotFound.class, () -> restTemplate.getForObject(baseUrl + "/100", OrderDto.class));
+    }
+
+    @Test
+    void getOrders_shouldFilterByStatusAndPage()
+            throws IOException, OrderServiceException, OrderNotFoundException, OrderStatusOperationException {
+        final OrderDto first = orderService.createOrder(getOrderDto());
+        final OrderDto second = orderService.createOrder(getOrderDto());
+        final OrderDto paid = orderService.createOrder(getOrderDto());
+        orderService.payOrder(paid.getOrderId());
+
+        final ResponseEntity<OrderDto[]> firstPage = restTemplate.getForEntity(
+                baseUrl + "?status=CREATED&size=1", OrderDto[].class);
+
+        assertNotNull(firstPage.getBody());
+        assertEquals(1, firstPage.getBody().length);
+        assertEquals(first.getOrderId(), firstPage.getBody()[0].getOrderId());
+        final String afterId = firstPage.getHeaders().getFirst(OrderController.NEXT_AFTER_ID_HEADER);
+        final String afterCreatedAt = firstPage.getHeaders().getFirst(OrderController.NEXT_AFTER_CREATED_AT_HEADER);
+
+        final ResponseEntity<OrderDto[]> secondPage = restTemplate.getForEntity(
+                baseUrl + "?status=CREATED&size=2&afterId={afterId}&afterCreatedAt={afterCreatedAt}",
+                OrderDto[].class, afterId, afterCreatedAt);
+
+        assertNotNull(secondPage.getBody());
+        assertEquals(1, secondPage.getBody().length);
+        assertEquals(second.getOrderId(), secondPage.getBody()[0].getOrderId());
+        assertNull(secondPage.getHeaders().getFirst(OrderController.NEXT_AFTER_ID_HEADER));
+    }
+
+    @Test
+    void getOrder_compactJson_shouldReferenceProductsById() throws IOException, OrderServiceException {
+        final OrderDto order = orderService.createOrder(getOrderDto());
+        final HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.valueOf(MessageConverterConfig.COMPACT_JSON_VALUE)));
+
+        final ResponseEntity<CompactOrderDto> response = restTemplate.exchange(
+                baseUrl + "/" + order.getOrderId(), HttpMethod.GET, new HttpEntity<>(headers), CompactOrderDto.class);
+
+        final CompactOrderDto compactOrder = response.getBody();
+        assertNotNull(compactOrder);
+        assertEquals(order.getOrderId(), compactOrder.getOrderId());
+        assertEquals(3, compactOrder.getLines().size());
+        assertEquals(1L, compactOrder.getLines().get(0).getProductId());
+        assertEquals(3, compactOrder.getLines().get(0).getQuantity());
+        assertEquals("Apple", compactOrder.getProducts().get(1L).getName());
+    }
+
+    @Test
+    void getOrders_compactCborGzip_shouldDeduplicateProducts() throws IOException, OrderServiceException {
+        for (int i = 0; i < 12; i++) {
+            orderService.createOrder(OrderDto.builder()
+                                             .products(List.of(OrderProductDto.builder()
+                                                                              .product(ProductDto.builder().productId(3L).build())
+                                                                              .productQuantity(1)
+                                                                              .build()))
+                                             .build());
+        }
+        final HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.valueOf(MessageConverterConfig.COMPACT_CBOR_VALUE)));
+        headers.set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+
+        final ResponseEntity<byte[]> response = restTemplate.exchange(
+                baseUrl + "?status=CREATED", HttpMethod.GET, new HttpEntity<>(headers), byte[].class);
+
+        assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertNotNull(response.getBody());
+        final CompactOrderPageDto page = new ObjectMapper(new CBORFactory()).findAndRegisterModules().readValue(
+                new GZIPInputStream(new ByteArrayInputStream(response.getBody())), CompactOrderPageDto.class);
+        assertEquals(12, page.getOrders().size());
+        assertEquals(1, page.getProducts().size());
+        assertNull(page.getOrders().get(0).getProducts());
+    }
+
+    @Test
+    void getOrders_compactJson_emptyPage() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.valueOf(MessageConverterConfig.COMPACT_JSON_VALUE)));
+
+        final ResponseEntity<CompactOrderPageDto> response = restTemplate.exchange(
+                baseUrl + "?status=PAID", HttpMethod.GET, new HttpEntity<>(headers), CompactOrderPageDto.class);
+
+        assertNotNull(response.getBody());
+        assertTrue(response.getBody().getOrders().isEmpty());
+    }
+
+    @Test
+    void createOrders_compactJson_shouldAnswerInPlainJson() throws IOException {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.valueOf(MessageConverterConfig.COMPACT_JSON_VALUE)));
+
+        final ResponseEntity<BatchOrderResultDto[]> response = restTemplate.exchange(
+                baseUrl + "/batch", HttpMethod.POST, new HttpEntity<>(List.of(getOrderDto()), headers),
+                BatchOrderResultDto[].class);
+
+        assertTrue(MediaType.APPLICATION_JSON.isCompatibleWith(response.getHeaders().getContentType()));
+        assertNotNull(response.getBody());
+        assertNotNull(response.getBody()[0].getOrder().getOrderId());
+    }
 
     @Test
     void cancelOrder_shouldCancel() throws IOException, OrderServiceException {
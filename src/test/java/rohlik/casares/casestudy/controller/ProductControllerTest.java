@@ -9,6 +9,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,13 +18,20 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 import rohlik.casares.casestudy.dto.OrderDto;
 import rohlik.casares.casestudy.dto.ProductDto;
+import rohlik.casares.casestudy.dto.ProductImportErrorDto;
+import rohlik.casares.casestudy.dto.ProductImportResultDto;
+import rohlik.casares.casestudy.dto.StockAdjustmentDto;
+import rohlik.casares.casestudy.model.Product;
 import rohlik.casares.casestudy.repository.ProductRepository;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -91,6 +100,72 @@ class ProductControllerTest {
         assertEquals(countAfter, countBefore);
     }
 
+    @Test
+    void updateProduct_shouldKeepQuantity() throws IOException {
+        final ProductDto productDto = getProductDtoUpdate().toBuilder().name("Green apple").quantity(99).build();
+
+        final ResponseEntity<ProductDto> response = restTemplate.exchange(
+                baseUrl + "/1", HttpMethod.PUT, new HttpEntity<>(productDto), ProductDto.class);
+
+        assertNotNull(response.getBody());
+        assertEquals("Green apple", response.getBody().getName());
+        assertEquals(10, response.getBody().getQuantity());
+        assertEquals(10, productRepository.findById(1L).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void adjustStock_shouldApplyDelta() {
+        final ProductDto product = restTemplate.postForObject(
+                baseUrl + "/1/stock-adjustments", StockAdjustmentDto.builder().delta(-3).build(), ProductDto.class);
+
+        assertNotNull(product);
+        assertEquals(7, product.getQuantity());
+        assertEquals(7, productRepository.findById(1L).orElseThrow().getQuantity());
+        assertThrows(HttpClientErrorException.Conflict.class, () -> restTemplate.postForObject(
+                baseUrl + "/1/stock-adjustments", StockAdjustmentDto.builder().delta(-8).build(), ProductDto.class));
+        assertThrows(HttpClientErrorException.NotFound.class, () -> restTemplate.postForObject(
+                baseUrl + "/100/stock-adjustments", StockAdjustmentDto.builder().delta(1).build(), ProductDto.class));
+    }
+
+    @Test
+    void adjustStock_bulk_shouldApplyAllOrNothing() {
+        assertThrows(HttpClientErrorException.Conflict.class, () -> restTemplate.postForEntity(
+                baseUrl + "/stock-adjustments",
+                List.of(adjustment(1L, 5), adjustment(2L, -100)),
+                Void.class));
+        assertThrows(HttpClientErrorException.NotFound.class, () -> restTemplate.postForEntity(
+                baseUrl + "/stock-adjustments",
+                List.of(adjustment(1L, 5), adjustment(100L, 1)),
+                Void.class));
+        assertEquals(10, productRepository.findById(1L).orElseThrow().getQuantity());
+        assertEquals(8, productRepository.findById(2L).orElseThrow().getQuantity());
+
+        final ResponseEntity<Void> response = restTemplate.postForEntity(
+                baseUrl + "/stock-adjustments",
+                List.of(adjustment(1L, 5), adjustment(2L, -3), adjustment(1L, 1)),
+                Void.class);
+
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
+        assertEquals(16, productRepository.findById(1L).orElseThrow().getQuantity());
+        assertEquals(5, productRepository.findById(2L).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void adjustStock_missingFields_shouldRejectWithBadRequest() {
+        assertThrows(HttpClientErrorException.BadRequest.class, () -> restTemplate.postForObject(
+                baseUrl + "/1/stock-adjustments", StockAdjustmentDto.builder().build(), ProductDto.class));
+        assertThrows(HttpClientErrorException.BadRequest.class, () -> restTemplate.postForEntity(
+                baseUrl + "/stock-adjustments",
+                List.of(adjustment(1L, 5), StockAdjustmentDto.builder().productId(2L).build()),
+                Void.class));
+        assertThrows(HttpClientErrorException.BadRequest.class, () -> restTemplate.postForEntity(
+                baseUrl + "/stock-adjustments",
+                List.of(adjustment(1L, 5), StockAdjustmentDto.builder().delta(1).build()),
+                Void.class));
+        assertEquals(10, productRepository.findById(1L).orElseThrow().getQuantity());
+        assertEquals(8, productRepository.findById(2L).orElseThrow().getQuantity());
+    }
+
     @Test
     void updateProduct_notFound() throws IOException {
         ProductDto productDto = getProductDto();
@@ -116,6 +191,108 @@ class ProductControllerTest {
         assertThrows(HttpClientErrorException.NotFound.class, () -> restTemplate.delete(baseUrl + "/100"));
     }
 
+    @Test
+    void importProducts_csv_shouldUpsertAndReportRowErrors() {
+        final String csv = "productId,name,quantity,price\n"
+                + "1,Green apple,99,2.50\n"
+                + ",Banana,20,1.20\n"
+                + "100,Ghost,1,1\n"
+                + ",\"Kiwi, gold\",5,4\n"
+                + ",No price,5,\n"
+                + ",Pear,abc,1\n";
+        final HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.valueOf(ProductController.TEXT_CSV_VALUE));
+
+        final ProductImportResultDto result = restTemplate.postForObject(
+                baseUrl + "/import", new HttpEntity<>(csv, headers), ProductImportResultDto.class);
+
+        assertNotNull(result);
+        assertEquals(2, result.getInserted());
+        assertEquals(1, result.getUpdated());
+        assertEquals(3, result.getFailed());
+        assertEquals(List.of(4L, 6L, 7L),
+                     result.getErrors().stream().map(ProductImportErrorDto::getLine).sorted().collect(Collectors.toList()));
+
+        final Product apple = productRepository.findById(1L).orElseThrow();
+        assertEquals("Green apple", apple.getName());
+        assertEquals(10, apple.getQuantity());
+        assertEquals(5, productRepository.count());
+    }
+
+    @Test
+    void importProducts_ndjson_shouldInsert() {
+        final String ndjson = "{\"name\":\"Banana\",\"quantity\":20,\"price\":1.2}\n"
+                + "{\"name\":\"Pear\",\"quantity\":\n"
+                + "{\"productId\":2,\"name\":\"Blood orange\",\"price\":3.5}\n";
+        final HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_NDJSON);
+
+        final ProductImportResultDto result = restTemplate.postForObject(
+                baseUrl + "/import", new HttpEntity<>(ndjson, headers), ProductImportResultDto.class);
+
+        assertNotNull(result);
+        assertEquals(1, result.getInserted());
+        assertEquals(1, result.getUpdated());
+        assertEquals(1, result.getFailed());
+        assertEquals(2L, result.getErrors().get(0).getLine());
+        assertEquals("Blood orange", productRepository.findById(2L).orElseThrow().getName());
+    }
+
+    @Test
+    void exportProducts_shouldWriteCsv() {
+        final String body = restTemplate.getForObject(baseUrl + "/export", String.class);
+
+        assertNotNull(body);
+        final String[] lines = body.split("\n");
+        assertEquals("productId,name,quantity,price", lines[0]);
+        assertEquals(productRepository.count() + 1, lines.length);
+        assertTrue(lines[1].startsWith("1,Apple,10,"));
+    }
+
+    @Test
+    void getProducts_withoutPaging_shouldReturnAll() {
+        for (int i = 0; i < 120; i++) {
+            productRepository.save(Product.builder().name("Product " + i).quantity(1).price(BigDecimal.ONE).build());
+        }
+
+        final ResponseEntity<ProductDto[]> response = restTemplate.getForEntity(baseUrl, ProductDto[].class);
+
+        assertNotNull(response.getBody());
+        assertEquals(productRepository.count(), response.getBody().length);
+        assertNull(response.getHeaders().getFirst(ProductController.NEXT_AFTER_ID_HEADER));
+    }
+
+    @Test
+    void getProducts_shouldPageByKeyset() {
+        final ResponseEntity<ProductDto[]> firstPage = restTemplate.getForEntity(baseUrl + "?size=2", ProductDto[].class);
+
+        assertNotNull(firstPage.getBody());
+        assertEquals(2, firstPage.getBody().length);
+        assertEquals(1L, firstPage.getBody()[0].getProductId());
+        assertEquals("2", firstPage.getHeaders().getFirst(ProductController.NEXT_AFTER_ID_HEADER));
+
+        final ResponseEntity<ProductDto[]> secondPage = restTemplate.getForEntity(baseUrl + "?size=2&afterId=2", ProductDto[].class);
+
+        assertNotNull(secondPage.getBody());
+        assertEquals(1, secondPage.getBody().length);
+        assertEquals(3L, secondPage.getBody()[0].getProductId());
+        assertNull(secondPage.getHeaders().getFirst(ProductController.NEXT_AFTER_ID_HEADER));
+    }
+
+    @Test
+    void streamProducts_shouldWriteNdjson() throws IOException {
+        final String body = restTemplate.getForObject(baseUrl + "/stream", String.class);
+
+        assertNotNull(body);
+        final String[] lines = body.split("\n");
+        assertEquals(productRepository.count(), lines.length);
+        assertEquals(1L, objectMapper.readValue(lines[0], ProductDto.class).getProductId());
+    }
+
+    private StockAdjustmentDto adjustment(Long productId, int delta) {
+        return StockAdjustmentDto.builder().productId(productId).delta(delta).build();
+    }
+
     private ProductDto getProductDto() throws IOException {
         return objectMapper.readValue(
                 getClass().getClassLoader().getResourceAsStream("createProductInput.json"), ProductDto.class);
@@ -0,0 +1,66 @@
+package rohlik.casares.casestudy.id;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class SnowflakeIdGeneratorTest {
+
+    @Test
+    void testNextId_encodesNodeAndTime() {
+        final SnowflakeIdGenerator generator = new SnowflakeIdGenerator(513);
+
+        final long id = generator.nextId();
+
+        assertEquals(513, SnowflakeIdGenerator.nodeOf(id));
+        assertTrue(Duration.between(SnowflakeIdGenerator.timestampOf(id), Instant.now()).abs().toSeconds() < 5);
+    }
+
+    @Test
+    void testNextId_uniqueAndIncreasingAcrossThreads() throws Exception {
+        final SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7);
+        final Set<Long> ids = ConcurrentHashMap.newKeySet();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Boolean>> results = IntStream.range(0, 4)
+                                                           .mapToObj(i -> executor.submit(() -> {
+                                                               long previous = 0;
+                                                               for (int j = 0; j < 50_000; j++) {
+                                                                   final long id = generator.nextId();
+                                                                   if (id <= previous || !ids.add(id)) {
+                                                                       return false;
+                                                                   }
+                                                                   previous = id;
+                                                               }
+                                                               return true;
+                                                           }))
+                                                           .collect(Collectors.toList());
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get(30, TimeUnit.SECONDS));
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        assertEquals(200_000, ids.size());
+    }
+
+    @Test
+    void testConstructor_rejectsNodeOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE + 1));
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(-1));
+    }
+}
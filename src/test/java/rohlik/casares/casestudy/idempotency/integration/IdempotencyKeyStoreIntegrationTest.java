@@ -0,0 +1,223 @@
+package rohlik.casares.casestudy.idempotency.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import rohlik.casares.casestudy.admission.OrderAdmission;
+import rohlik.casares.casestudy.dto.OrderDto;
+import rohlik.casares.casestudy.dto.OrderProductDto;
+import rohlik.casares.casestudy.dto.ProductDto;
+import rohlik.casares.casestudy.exception.IdempotencyKeyConflictException;
+import rohlik.casares.casestudy.exception.OrderServiceException;
+import rohlik.casares.casestudy.idempotency.IdempotencyKeyStore;
+import rohlik.casares.casestudy.model.IdempotencyKey;
+import rohlik.casares.casestudy.repository.IdempotencyKeyRepository;
+import rohlik.casares.casestudy.repository.OrderRepository;
+import rohlik.casares.casestudy.service.OrderService;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:idempotencyKeys",
+        "orders.idempotency.persistent=true",
+        "orders.idempotency.max-wait=PT2S",
+        "orders.admission.max-concurrent=1",
+        "orders.admission.max-wait=PT5S",
+        "outbox.relay.interval=PT1H"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class IdempotencyKeyStoreIntegrationTest {
+
+    @Autowired
+    IdempotencyKeyStore idempotencyKeyStore;
+
+    @Autowired
+    IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    OrderAdmission orderAdmission;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Test
+    void testExecute_storesKeyWithOrder() throws Exception {
+        final OrderDto order = idempotencyKeyStore.execute("key-1", () -> orderService.createOrder(getOrderDto()));
+
+        assertEquals(order.getOrderId(), idempotencyKeyRepository.findById("key-1").orElseThrow().getOrderId());
+    }
+
+    @Test
+    void testExecute_replaysOrderStoredByAnotherInstance() throws Exception {
+        final OrderDto order = orderService.createOrder(getOrderDto());
+        idempotencyKeyRepository.save(IdempotencyKey.builder()
+                                                    .idempotencyKey("key-2")
+                                                    .orderId(order.getOrderId())
+                                                    .createdAt(Instant.now())
+                                                    .build());
+
+        final OrderDto replayed = idempotencyKeyStore.execute("key-2", () -> {
+            throw new OrderServiceException("Duplicate request must not create an order");
+        });
+
+        assertEquals(order.getOrderId(), replayed.getOrderId());
+        assertEquals(1, orderRepository.count());
+    }
+
+    @Test
+    void testExecute_conflictWhileAnotherInstanceIsInProgress() {
+        idempotencyKeyRepository.save(IdempotencyKey.builder()
+                                                    .idempotencyKey("key-3")
+                                                    .createdAt(Instant.now())
+                                                    .build());
+
+        assertThrows(IdempotencyKeyConflictException.class, () -> idempotencyKeyStore.execute(
+                "key-3", () -> orderService.createOrder(getOrderDto())));
+        assertEquals(0, orderRepository.count());
+    }
+
+    @Test
+    void testExecute_failedRequestReleasesKey() throws Exception {
+        assertThrows(OrderServiceException.class, () -> idempotencyKeyStore.execute("key-4", () -> {
+            throw new OrderServiceException("Stock exceeded");
+        }));
+        assertTrue(idempotencyKeyRepository.findById("key-4").isEmpty());
+
+        idempotencyKeyStore.execute("key-4", () -> orderService.createOrder(getOrderDto()));
+        assertEquals(1, orderRepository.count());
+    }
+
+    @Test
+    void testExecute_replaysOrderClaimedByAnotherInstanceInFlight() throws Exception {
+        final CountDownLatch claimed = new CountDownLatch(1);
+        final CompletableFuture<Long> otherInstance = CompletableFuture.supplyAsync(
+                () -> new TransactionTemplate(transactionManager).execute(status -> {
+                    try {
+                        idempotencyKeyRepository.claim("key-5", Instant.now());
+                        final OrderDto order = orderService.createOrder(getOrderDto());
+                        idempotencyKeyRepository.complete("key-5", order.getOrderId());
+                        claimed.countDown();
+                        Thread.sleep(300);
+                        return order.getOrderId();
+                    }
+                    catch (OrderServiceException | InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }));
+        assertTrue(claimed.await(10, TimeUnit.SECONDS));
+
+        final OrderDto replayed = idempotencyKeyStore.execute("key-5", () -> {
+            throw new OrderServiceException("Duplicate request must not create an order");
+        });
+
+        assertEquals(otherInstance.get(10, TimeUnit.SECONDS), replayed.getOrderId());
+        assertEquals(1, orderRepository.count());
+    }
+
+    @Test
+    void testExecute_duplicateGivesUpAfterMaxWait() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CompletableFuture<OrderDto> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return idempotencyKeyStore.execute("key-6", () -> {
+                    started.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    }
+                    catch (InterruptedException e) {
+                        throw new OrderServiceException(e);
+                    }
+                    return orderService.createOrder(getOrderDto());
+                });
+            }
+            catch (OrderServiceException | IdempotencyKeyConflictException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        try {
+            assertThrows(IdempotencyKeyConflictException.class, () -> idempotencyKeyStore.execute(
+                    "key-6", () -> orderService.createOrder(getOrderDto())));
+        }
+        finally {
+            release.countDown();
+        }
+        first.get(10, TimeUnit.SECONDS);
+        assertEquals(1, orderRepository.count());
+    }
+
+    @Test
+    void testCreateOrder_waitsForAdmissionWithoutConnection() throws Exception {
+        final OrderDto orderDto = getOrderDto();
+        final CompletableFuture<OrderDto> waiting;
+        try (OrderAdmission.Permit ignored = orderAdmission.admit(orderDto)) {
+            waiting = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return orderService.createOrder(orderDto, "key-7");
+                }
+                catch (OrderServiceException | IdempotencyKeyConflictException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            Thread.sleep(300);
+
+            assertFalse(waiting.isDone());
+            assertEquals(0, dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean().getActiveConnections());
+        }
+
+        final OrderDto order = waiting.get(10, TimeUnit.SECONDS);
+        assertEquals(order.getOrderId(), idempotencyKeyRepository.findById("key-7").orElseThrow().getOrderId());
+    }
+
+    @Test
+    void testCreateOrder_replaysOrderAfterItsStockRanOut() throws Exception {
+        final OrderDto allOranges = OrderDto.builder()
+                                            .products(List.of(OrderProductDto.builder()
+                                                                             .product(ProductDto.builder()
+                                                                                                .productId(2L)
+                                                                                                .build())
+                                                                             .productQuantity(8)
+                                                                             .build()))
+                                            .build();
+        final OrderDto order = orderService.createOrder(allOranges, "key-8");
+
+        assertEquals(order.getOrderId(), orderService.createOrder(allOranges, "key-8").getOrderId());
+        assertEquals(1, orderRepository.count());
+    }
+
+    private OrderDto getOrderDto() throws OrderServiceException {
+        try {
+            return new ObjectMapper().readValue(
+                    getClass().getClassLoader().getResourceAsStream("createOrderInput.json"), OrderDto.class);
+        }
+        catch (IOException e) {
+            throw new OrderServiceException(e);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package rohlik.casares.casestudy.journal.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import rohlik.casares.casestudy.CaseStudyApplication;
+import rohlik.casares.casestudy.dto.OrderDto;
+import rohlik.casares.casestudy.dto.OrderProductDto;
+import rohlik.casares.casestudy.dto.ProductDto;
+import rohlik.casares.casestudy.journal.MappedStateJournal;
+import rohlik.casares.casestudy.model.OrderStatus;
+import rohlik.casares.casestudy.service.OrderService;
+import rohlik.casares.casestudy.service.ProductImportService;
+import rohlik.casares.casestudy.service.ProductService;
+
+/**
+ * Every test starts the application on a fresh in-memory database, which stands in for a restart, and recovers it
+ * from the journal directory of the previous run.
+ */
+class StateJournalIntegrationTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testRecover_restoresProductsAndOrders() throws Exception {
+        final Long kiwiId;
+        final Long createdOrderId;
+        final Long cancelledOrderId;
+        try (ConfigurableApplicationContext context = start("journalFirstRun")) {
+            final ProductService productService = context.getBean(ProductService.class);
+            final OrderService orderService = context.getBean(OrderService.class);
+
+            kiwiId = productService.createProduct(ProductDto.builder()
+                                                            .name("Kiwi")
+                                                            .quantity(5)
+                                                            .price(new BigDecimal("4"))
+                                                            .build())
+                                   .getProductId();
+            createdOrderId = orderService.createOrder(orderOf(1L, 3)).getOrderId();
+            cancelledOrderId = orderService.createOrder(orderOf(kiwiId, 1)).getOrderId();
+            orderService.cancelOrder(cancelledOrderId);
+            productService.adjustStock(2L, 2);
+            productService.deleteProduct(3L);
+            context.getBean(ProductImportService.class).importNdjson(new ByteArrayInputStream((
+                    "{\"name\":\"Fig\",\"quantity\":7,\"price\":1.5}\n"
+                            + "{\"productId\":1,\"name\":\"Green apple\",\"price\":2.5}\n"
+            ).getBytes(StandardCharsets.UTF_8)));
+        }
+
+        try (ConfigurableApplicationContext context = start("journalSecondRun")) {
+            final JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+            assertEquals(List.of("Green apple:7:2.50", "Orange:10:3.00", "Kiwi:5:4.00", "Fig:7:1.50"),
+                    jdbcTemplate.query("SELECT name, quantity, price FROM products ORDER BY id",
+                            (rs, rowNum) -> rs.getString("name") + ":" + rs.getInt("quantity") + ":"
+                                    + rs.getBigDecimal("price").setScale(2))
+            );
+            assertEquals(OrderStatus.CREATED.ordinal(), statusOf(jdbcTemplate, createdOrderId));
+            assertEquals(OrderStatus.CANCELLED.ordinal(), statusOf(jdbcTemplate, cancelledOrderId));
+            assertEquals(3, jdbcTemplate.queryForObject(
+                    "SELECT quantity FROM order_products WHERE order_id = ?", Integer.class, createdOrderId));
+
+            final ProductDto melon = context.getBean(ProductService.class)
+                                            .createProduct(ProductDto.builder()
+                                                                     .name("Melon")
+                                                                     .quantity(1)
+                                                                     .price(BigDecimal.TEN)
+                                                                     .build());
+            assertTrue(melon.getProductId() > kiwiId);
+            final OrderDto order = context.getBean(OrderService.class).createOrder(orderOf(kiwiId, 5));
+            assertTrue(order.getOrderId() > cancelledOrderId);
+        }
+    }
+
+    @Test
+    void testSnapshot_dropsCoveredSegments() throws Exception {
+        try (ConfigurableApplicationContext context = start("journalCompactedRun")) {
+            final OrderService orderService = context.getBean(OrderService.class);
+            context.getBean(ProductService.class).adjustStock(3L, 1000);
+            for (int i = 0; i < 300; i++) {
+                orderService.createOrder(orderOf(3L, 1));
+            }
+            assertTrue(list("segment-").size() > 1);
+
+            context.getBean(MappedStateJournal.class).snapshot();
+
+            assertEquals(1, list("segment-").size());
+            assertEquals(1, list("snapshot-").size());
+            final MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+            final double appends = meterRegistry.get("journal.appends").functionCounter().count();
+            final double forces = meterRegistry.get("journal.forces").functionCounter().count();
+            assertEquals(301, appends);
+            assertTrue(forces > 0 && forces <= appends);
+        }
+
+        try (ConfigurableApplicationContext context = start("journalRecoveredRun")) {
+            final JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            assertEquals(715, jdbcTemplate.queryForObject(
+                    "SELECT quantity FROM products WHERE id = 3", Integer.class));
+            assertEquals(300, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders", Integer.class));
+            assertFalse(list("snapshot-").isEmpty());
+        }
+    }
+
+    private ConfigurableApplicationContext start(String database) {
+        return new SpringApplicationBuilder(CaseStudyApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:" + database,
+                        "--spring.jpa.show-sql=false",
+                        "--journal.enabled=true",
+                        "--journal.directory=" + directory,
+                        "--journal.segment-size=64KB"
+                );
+    }
+
+    private List<Path> list(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(prefix))
+                        .collect(Collectors.toList());
+        }
+    }
+
+    private static int statusOf(JdbcTemplate jdbcTemplate, Long orderId) {
+        return jdbcTemplate.queryForObject("SELECT status FROM orders WHERE id = ?", Integer.class, orderId);
+    }
+
+    private static OrderDto orderOf(Long productId, int quantity) {
+        return OrderDto.builder()
+                       .products(List.of(OrderProductDto.builder()
+                                                        .product(ProductDto.builder().productId(productId).build())
+                                                        .productQuantity(quantity)
+                                                        .build()))
+                       .build();
+    }
+}
@@ -0,0 +1,67 @@
+package rohlik.casares.casestudy.metrics.integration;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+import rohlik.casares.casestudy.dto.OrderDto;
+import rohlik.casares.casestudy.dto.OrderProductDto;
+import rohlik.casares.casestudy.dto.ProductDto;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMetrics
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class OrderMetricsIntegrationTest {
+
+    @LocalServerPort
+    private int port;
+
+    private static RestTemplate restTemplate;
+
+    @BeforeAll
+    public static void init() {
+        restTemplate = new RestTemplate();
+    }
+
+    @Test
+    void testPrometheusEndpoint_exposesOrderRepositoryAndPoolMetrics() {
+        final OrderDto order = restTemplate.postForObject(baseUrl("/api/orders"), orderOf(1L, 1), OrderDto.class);
+        assertNotNull(order);
+        restTemplate.postForObject(baseUrl("/api/orders/" + order.getOrderId() + "/pay"), null, OrderDto.class);
+        assertThrows(HttpServerErrorException.class, () -> restTemplate.postForObject(
+                baseUrl("/api/orders"), orderOf(1L, 100), OrderDto.class));
+
+        final String scrape = restTemplate.getForObject(baseUrl("/actuator/prometheus"), String.class);
+
+        assertNotNull(scrape);
+        assertTrue(scrape.contains("orders_requests_seconds_count{operation=\"create\",outcome=\"success\",} 1.0"));
+        assertTrue(scrape.contains("orders_requests_seconds_count{operation=\"pay\",outcome=\"success\",} 1.0"));
+        assertTrue(scrape.contains("orders_requests_seconds_bucket{operation=\"create\",outcome=\"success\""));
+        assertTrue(scrape.contains("orders_failures_total{operation=\"create\",reason=\"stock_exceeded\",} 1.0"));
+        assertTrue(scrape.contains("orders_expiry_armed 0.0"));
+        assertTrue(scrape.contains("spring_data_repository_invocations_seconds_count{"));
+        assertTrue(scrape.contains("hikaricp_connections_active"));
+    }
+
+    private String baseUrl(String path) {
+        return "http://localhost:" + port + path;
+    }
+
+    private OrderDto orderOf(Long productId, int quantity) {
+        return OrderDto.builder()
+                       .products(List.of(OrderProductDto.builder()
+                                                        .product(ProductDto.builder().productId(productId).build())
+                                                        .productQuantity(quantity)
+                                                        .build()))
+                       .build();
+    }
+}
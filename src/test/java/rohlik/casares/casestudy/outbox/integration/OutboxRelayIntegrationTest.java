@@ -0,0 +1,119 @@
+package rohlik.casares.casestudy.outbox.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import rohlik.casares.casestudy.dto.OrderDto;
+import rohlik.casares.casestudy.dto.OrderEventDto;
+import rohlik.casares.casestudy.dto.OrderProductDto;
+import rohlik.casares.casestudy.dto.ProductDto;
+import rohlik.casares.casestudy.exception.OrderServiceException;
+import rohlik.casares.casestudy.model.OrderStatus;
+import rohlik.casares.casestudy.model.OutboxEvent;
+import rohlik.casares.casestudy.outbox.OutboxRelay;
+import rohlik.casares.casestudy.outbox.QueueOutboxPublisher;
+import rohlik.casares.casestudy.repository.OutboxEventRepository;
+import rohlik.casares.casestudy.service.OrderService;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outbox",
+        "outbox.relay.interval=PT1H",
+        "outbox.queue.capacity=3"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class OutboxRelayIntegrationTest {
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    OutboxRelay outboxRelay;
+
+    @Autowired
+    QueueOutboxPublisher queueOutboxPublisher;
+
+    @Autowired
+    OutboxEventRepository outboxEventRepository;
+
+    @Test
+    void testRelay_publishesStatusChangesInOrder() throws Exception {
+        final OrderDto order = orderService.createOrder(getOrderDto());
+        orderService.payOrder(order.getOrderId());
+        assertEquals(2, outboxEventRepository.count());
+
+        outboxRelay.relay();
+
+        final OrderEventDto created = queueOutboxPublisher.poll(Duration.ZERO);
+        final OrderEventDto paid = queueOutboxPublisher.poll(Duration.ZERO);
+        assertEquals(order.getOrderId(), created.getOrderId());
+        assertEquals(OrderStatus.CREATED, created.getStatus());
+        assertEquals(order.getOrderId(), paid.getOrderId());
+        assertEquals(OrderStatus.PAID, paid.getStatus());
+        assertEquals(0, outboxEventRepository.count());
+    }
+
+    @Test
+    void testRelay_ordersEventsOfAnOrderByCreationNotId() throws Exception {
+        final Instant createdAt = Instant.now();
+        // Another instance wrote the CREATED event from a later block of ids
+        outboxEventRepository.save(OutboxEvent.builder()
+                                              .orderId(7L)
+                                              .status(OrderStatus.CANCELLED)
+                                              .createdAt(createdAt.plusSeconds(1))
+                                              .build());
+        outboxEventRepository.save(OutboxEvent.builder()
+                                              .orderId(7L)
+                                              .status(OrderStatus.CREATED)
+                                              .createdAt(createdAt)
+                                              .build());
+
+        outboxRelay.relay();
+
+        assertEquals(OrderStatus.CREATED, queueOutboxPublisher.poll(Duration.ZERO).getStatus());
+        assertEquals(OrderStatus.CANCELLED, queueOutboxPublisher.poll(Duration.ZERO).getStatus());
+    }
+
+    @Test
+    void testRelay_keepsEventsWhenPublisherRejectsBatch() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            final OrderDto order = orderService.createOrder(orderOf(1L, 1));
+            orderService.cancelOrder(order.getOrderId());
+        }
+
+        outboxRelay.relay();
+
+        assertNull(queueOutboxPublisher.poll(Duration.ZERO));
+        assertEquals(4, outboxEventRepository.count());
+    }
+
+    @Test
+    void testCreateOrder_rolledBackWritesNoEvent() {
+        assertThrows(OrderServiceException.class, () -> orderService.createOrder(orderOf(1L, 100)));
+
+        assertEquals(0, outboxEventRepository.count());
+    }
+
+    private OrderDto orderOf(Long productId, int quantity) {
+        return OrderDto.builder()
+                       .products(List.of(OrderProductDto.builder()
+                                                        .product(ProductDto.builder().productId(productId).build())
+                                                        .productQuantity(quantity)
+                                                        .build()))
+                       .build();
+    }
+
+    private OrderDto getOrderDto() throws IOException {
+        return new ObjectMapper().readValue(
+                getClass().getClassLoader().getResourceAsStream("createOrderInput.json"), OrderDto.class);
+    }
+}
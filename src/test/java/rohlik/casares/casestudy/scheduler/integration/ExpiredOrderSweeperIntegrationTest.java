@@ -0,0 +1,82 @@
+package rohlik.casares.casestudy.scheduler.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import rohlik.casares.casestudy.dto.OrderDto;
+import rohlik.casares.casestudy.exception.OrderServiceException;
+import rohlik.casares.casestudy.model.OrderStatus;
+import rohlik.casares.casestudy.model.Product;
+import rohlik.casares.casestudy.repository.OrderRepository;
+import rohlik.casares.casestudy.repository.ProductRepository;
+import rohlik.casares.casestudy.scheduler.ExpiredOrderSweeper;
+import rohlik.casares.casestudy.service.OrderService;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:orderSweeper",
+        "orders.expiry.timeout=0s",
+        "orders.expiry.max-pending=0",
+        "orders.sweeper.interval=PT1H",
+        "orders.sweeper.page-size=2"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class ExpiredOrderSweeperIntegrationTest {
+
+    @Autowired
+    ExpiredOrderSweeper expiredOrderSweeper;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Test
+    void testSweep_cancelsExpiredOrdersAndRestoresStock() throws Exception {
+        final Map<Long, Integer> stockBefore = getStock();
+
+        final List<Long> createdIds = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            createdIds.add(createNewOrder());
+        }
+        final Long paidId = createNewOrder();
+        orderService.payOrder(paidId);
+
+        expiredOrderSweeper.sweep();
+
+        for (Long orderId : createdIds) {
+            assertEquals(OrderStatus.CANCELLED, orderRepository.findById(orderId).orElseThrow().getStatus());
+        }
+        assertEquals(OrderStatus.PAID, orderRepository.findById(paidId).orElseThrow().getStatus());
+
+        final Map<Long, Integer> stockAfter = getStock();
+        assertEquals(stockBefore.get(1L) - 3, stockAfter.get(1L));
+        assertEquals(stockBefore.get(2L) - 1, stockAfter.get(2L));
+        assertEquals(stockBefore.get(3L) - 1, stockAfter.get(3L));
+    }
+
+    private Map<Long, Integer> getStock() {
+        return productRepository.findAll()
+                                .stream()
+                                .collect(Collectors.toMap(Product::getId, Product::getQuantity));
+    }
+
+    private Long createNewOrder() throws IOException, OrderServiceException {
+        final OrderDto order = orderService.createOrder(new ObjectMapper().readValue(
+                getClass().getClassLoader().getResourceAsStream("createOrderInput.json"), OrderDto.class));
+        return order.getOrderId();
+    }
+}
@@ -0,0 +1,113 @@
+package rohlik.casares.casestudy.scheduler.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import rohlik.casares.casestudy.dto.OrderDto;
+import rohlik.casares.casestudy.exception.OrderServiceException;
+import rohlik.casares.casestudy.model.Order;
+import rohlik.casares.casestudy.model.OrderStatus;
+import rohlik.casares.casestudy.repository.OrderRepository;
+import rohlik.casares.casestudy.repository.ProductRepository;
+import rohlik.casares.casestudy.scheduler.OrderExpiryScheduler;
+import rohlik.casares.casestudy.service.OrderService;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:orderExpiry",
+        "orders.expiry.timeout=1s",
+        "orders.expiry.max-pending=2"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class OrderExpirySchedulerIntegrationTest {
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    OrderExpiryScheduler orderExpiryScheduler;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Test
+    void testCreatedOrder_cancelledOnExpiry() throws IOException, OrderServiceException, InterruptedException {
+        final Integer stockBefore = productRepository.findById(1L).orElseThrow().getQuantity();
+
+        final OrderDto order = orderService.createOrder(getOrderDto());
+        assertNotNull(order.getExpiresAt());
+
+        assertEquals(OrderStatus.CANCELLED, awaitStatus(order.getOrderId(), OrderStatus.CANCELLED));
+        assertEquals(stockBefore, productRepository.findById(1L).orElseThrow().getQuantity());
+        assertEquals(0, orderExpiryScheduler.getPendingCount());
+    }
+
+    @Test
+    void testPaidOrder_notCancelledOnExpiry() throws Exception {
+        final OrderDto order = orderService.createOrder(getOrderDto());
+        orderService.payOrder(order.getOrderId());
+
+        assertEquals(0, orderExpiryScheduler.getPendingCount());
+        Thread.sleep(1500);
+        assertEquals(OrderStatus.PAID, orderRepository.findById(order.getOrderId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void testRecoverPendingExpiries_armsPersistedOrders() throws InterruptedException {
+        final Order order = orderRepository.save(Order.builder()
+                                                      .status(OrderStatus.CREATED)
+                                                      .total(BigDecimal.ZERO)
+                                                      .expiresAt(Instant.now().minusSeconds(1))
+                                                      .build());
+
+        orderExpiryScheduler.recoverPendingExpiries();
+
+        assertEquals(OrderStatus.CANCELLED, awaitStatus(order.getId(), OrderStatus.CANCELLED));
+    }
+
+    @Test
+    void testRecoverPendingExpiries_skipsArmedOrders() {
+        final Instant now = Instant.now();
+        final Order armed = saveCreatedOrder(now.plusSeconds(30));
+        saveCreatedOrder(now.plusSeconds(40));
+        saveCreatedOrder(now.plusSeconds(50));
+        orderExpiryScheduler.schedule(armed.getId(), armed.getExpiresAt());
+
+        orderExpiryScheduler.recoverPendingExpiries();
+
+        // The armed order comes first in the scan, the free slot still goes to the next one
+        assertEquals(2, orderExpiryScheduler.getPendingCount());
+    }
+
+    private Order saveCreatedOrder(Instant expiresAt) {
+        return orderRepository.save(Order.builder()
+                                         .status(OrderStatus.CREATED)
+                                         .total(BigDecimal.ZERO)
+                                         .expiresAt(expiresAt)
+                                         .build());
+    }
+
+    private OrderStatus awaitStatus(Long orderId, OrderStatus expected) throws InterruptedException {
+        OrderStatus status = null;
+        for (int i = 0; i < 50 && !expected.equals(status); i++) {
+            Thread.sleep(100);
+            status = orderRepository.findById(orderId).orElseThrow().getStatus();
+        }
+        return status;
+    }
+
+    private OrderDto getOrderDto() throws IOException {
+        return new ObjectMapper().readValue(
+                getClass().getClassLoader().getResourceAsStream("createOrderInput.json"), OrderDto.class);
+    }
+}
@@ -8,6 +8,8 @@ import static org.mockito.Mockito.when;
 import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -17,17 +19,23 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import rohlik.casares.casestudy.cache.CatalogProduct;
+import rohlik.casares.casestudy.cache.ProductCatalogCache;
 import rohlik.casares.casestudy.dto.OrderDto;
 import rohlik.casares.casestudy.dto.OrderProductDto;
 import rohlik.casares.casestudy.dto.ProductDto;
 import rohlik.casares.casestudy.exception.OrderServiceException;
+import rohlik.casares.casestudy.journal.StateJournal;
 import rohlik.casares.casestudy.model.Order;
 import rohlik.casares.casestudy.model.OrderStatus;
 import rohlik.casares.casestudy.model.Product;
+import rohlik.casares.casestudy.outbox.OrderOutbox;
 import rohlik.casares.casestudy.repository.OrderProductRepository;
 import rohlik.casares.casestudy.repository.OrderRepository;
 import rohlik.casares.casestudy.repository.ProductRepository;
+import rohlik.casares.casestudy.scheduler.OrderExpiryScheduler;
 import rohlik.casares.casestudy.service.impl.OrderServiceImpl;
+import rohlik.casares.casestudy.utils.ProductMapper;
 
 @ExtendWith(MockitoExtension.class)
 class OrderServiceTest {
@@ -65,6 +73,21 @@ class OrderServiceTest {
     @Mock
     OrderProductRepository orderProductRepository;
 
+    @Mock
+    OrderExpiryScheduler orderExpiryScheduler;
+
+    @Mock
+    InventoryService inventoryService;
+
+    @Mock
+    ProductCatalogCache productCatalogCache;
+
+    @Mock
+    OrderOutbox orderOutbox;
+
+    @Mock
+    StateJournal stateJournal;
+
     @InjectMocks
     OrderServiceImpl service;
 
@@ -73,8 +96,13 @@ class OrderServiceTest {
     void testCreateOrder_success(List<Product> productList, List<OrderProductDto> orderProductDtoList, Order savedOrder)
             throws OrderServiceException {
 
-        when(productRepository.findAllById(any())).thenReturn(productList);
+        when(productCatalogCache.getAll(any())).thenReturn(
+                productList.stream()
+                           .map(ProductMapper::mapToCatalogProduct)
+                           .collect(Collectors.toMap(CatalogProduct::getId, Function.identity())));
 
+        when(productRepository.getReferenceById(any())).thenAnswer(
+                invocation -> Product.builder().id(invocation.getArgument(0)).build());
         when(orderRepository.save(any())).thenReturn(savedOrder);
 
         OrderDto orderDtoInput = OrderDto.builder()
@@ -12,7 +12,9 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import rohlik.casares.casestudy.cache.ProductCatalogCache;
 import rohlik.casares.casestudy.dto.ProductDto;
+import rohlik.casares.casestudy.journal.StateJournal;
 import rohlik.casares.casestudy.model.Product;
 import rohlik.casares.casestudy.repository.ProductRepository;
 import rohlik.casares.casestudy.service.impl.ProductServiceImpl;
@@ -23,6 +25,15 @@ class ProductServiceTest {
     @Mock
     ProductRepository productRepository;
 
+    @Mock
+    InventoryService inventoryService;
+
+    @Mock
+    ProductCatalogCache productCatalogCache;
+
+    @Mock
+    StateJournal stateJournal;
+
     @InjectMocks
     ProductServiceImpl service;
 
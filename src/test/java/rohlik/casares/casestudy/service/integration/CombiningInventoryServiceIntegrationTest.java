@@ -0,0 +1,124 @@
+package rohlik.casares.casestudy.service.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import rohlik.casares.casestudy.dto.OrderDto;
+import rohlik.casares.casestudy.dto.OrderProductDto;
+import rohlik.casares.casestudy.dto.ProductDto;
+import rohlik.casares.casestudy.exception.OrderServiceException;
+import rohlik.casares.casestudy.exception.StockExceededException;
+import rohlik.casares.casestudy.model.Product;
+import rohlik.casares.casestudy.repository.ProductRepository;
+import rohlik.casares.casestudy.service.OrderService;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:combiningInventory",
+        "inventory.mode=combining"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class CombiningInventoryServiceIntegrationTest {
+
+    private static final int STOCK = 500;
+
+    private static final int ORDERS = 2000;
+
+    private static final int THREADS = 32;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Test
+    void testCreateOrder_concurrentOrdersForSameProductNeverOversell() throws Exception {
+        final Product product = saveProduct("Banana", STOCK);
+        final AtomicInteger accepted = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < ORDERS; i++) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        orderService.createOrder(orderOf(orderLine(product.getId(), 1)));
+                        accepted.incrementAndGet();
+                    }
+                    catch (OrderServiceException e) {
+                        assertTrue(e.getCause() instanceof StockExceededException);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+
+        assertEquals(STOCK, accepted.get());
+        assertEquals(0, productRepository.findById(product.getId()).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void testCreateOrder_stockExceededGivesBackGrantedLines() throws Exception {
+        final Long bananaId = saveProduct("Banana", 10).getId();
+        final Long cherryId = saveProduct("Cherry", 8).getId();
+        assertThrows(OrderServiceException.class, () -> orderService.createOrder(orderOf(
+                orderLine(bananaId, 5),
+                orderLine(cherryId, 100)
+        )));
+
+        // The granted line is given back by its lane after the order failed
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (quantityOf(bananaId) != 10 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(10, quantityOf(bananaId));
+        assertEquals(8, quantityOf(cherryId));
+
+        final OrderDto order = orderService.createOrder(orderOf(orderLine(bananaId, 10)));
+        assertEquals(0, quantityOf(bananaId));
+        orderService.cancelOrder(order.getOrderId());
+        assertEquals(10, quantityOf(bananaId));
+    }
+
+    private Product saveProduct(String name, int quantity) {
+        return productRepository.save(Product.builder()
+                                             .name(name)
+                                             .quantity(quantity)
+                                             .price(BigDecimal.ONE)
+                                             .build());
+    }
+
+    private int quantityOf(Long productId) {
+        return productRepository.findById(productId).orElseThrow().getQuantity();
+    }
+
+    private static OrderDto orderOf(OrderProductDto... lines) {
+        return OrderDto.builder().products(List.of(lines)).build();
+    }
+
+    private static OrderProductDto orderLine(Long productId, int quantity) {
+        return OrderProductDto.builder()
+                              .product(ProductDto.builder().productId(productId).build())
+                              .productQuantity(quantity)
+                              .build();
+    }
+}
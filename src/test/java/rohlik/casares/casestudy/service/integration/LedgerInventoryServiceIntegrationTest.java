@@ -0,0 +1,106 @@
+package rohlik.casares.casestudy.service.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import rohlik.casares.casestudy.dto.OrderDto;
+import rohlik.casares.casestudy.dto.OrderProductDto;
+import rohlik.casares.casestudy.dto.ProductDto;
+import rohlik.casares.casestudy.dto.StockAdjustmentDto;
+import rohlik.casares.casestudy.exception.OrderServiceException;
+import rohlik.casares.casestudy.exception.StockExceededException;
+import rohlik.casares.casestudy.repository.ProductRepository;
+import rohlik.casares.casestudy.service.InventoryService;
+import rohlik.casares.casestudy.service.OrderService;
+import rohlik.casares.casestudy.service.ProductService;
+import rohlik.casares.casestudy.service.impl.LedgerInventoryServiceImpl;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ledgerInventory",
+        "inventory.mode=ledger",
+        "inventory.ledger.flush-interval=PT1H"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class LedgerInventoryServiceIntegrationTest {
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    InventoryService inventoryService;
+
+    @Autowired
+    ProductService productService;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Test
+    void testCreateOrder_reservesInLedgerAndWritesBehind() throws Exception {
+        final OrderDto order = orderService.createOrder(getOrderDto());
+
+        assertEquals(7, inventoryService.getQuantities(List.of(1L)).get(1L));
+        assertEquals(10, productRepository.findById(1L).orElseThrow().getQuantity());
+
+        ((LedgerInventoryServiceImpl) inventoryService).flush();
+        assertEquals(7, productRepository.findById(1L).orElseThrow().getQuantity());
+
+        orderService.cancelOrder(order.getOrderId());
+        ((LedgerInventoryServiceImpl) inventoryService).flush();
+        assertEquals(10, inventoryService.getQuantities(List.of(1L)).get(1L));
+        assertEquals(10, productRepository.findById(1L).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void testCreateOrder_stockExceededLeavesLedgerUntouched() {
+        final OrderDto orderDto = OrderDto.builder()
+                                          .products(List.of(
+                                                  orderLine(1L, 5),
+                                                  orderLine(2L, 100)
+                                          ))
+                                          .build();
+
+        assertThrows(OrderServiceException.class, () -> orderService.createOrder(orderDto));
+
+        assertEquals(10, inventoryService.getQuantities(List.of(1L)).get(1L));
+        assertEquals(8, inventoryService.getQuantities(List.of(2L)).get(2L));
+    }
+
+    @Test
+    void testAdjustStock_appliesInLedgerAndWritesBehind() throws Exception {
+        productService.adjustStock(List.of(
+                StockAdjustmentDto.builder().productId(1L).delta(5).build(),
+                StockAdjustmentDto.builder().productId(2L).delta(-8).build()
+        ));
+        assertThrows(StockExceededException.class, () -> productService.adjustStock(List.of(
+                StockAdjustmentDto.builder().productId(1L).delta(1).build(),
+                StockAdjustmentDto.builder().productId(2L).delta(-1).build()
+        )));
+
+        assertEquals(15, inventoryService.getQuantities(List.of(1L)).get(1L));
+        assertEquals(0, inventoryService.getQuantities(List.of(2L)).get(2L));
+
+        ((LedgerInventoryServiceImpl) inventoryService).flush();
+        assertEquals(15, productRepository.findById(1L).orElseThrow().getQuantity());
+        assertEquals(0, productRepository.findById(2L).orElseThrow().getQuantity());
+    }
+
+    private OrderProductDto orderLine(Long productId, int quantity) {
+        return OrderProductDto.builder()
+                              .product(ProductDto.builder().productId(productId).build())
+                              .productQuantity(quantity)
+                              .build();
+    }
+
+    private OrderDto getOrderDto() throws IOException {
+        return new ObjectMapper().readValue(
+                getClass().getClassLoader().getResourceAsStream("createOrderInput.json"), OrderDto.class);
+    }
+}
@@ -0,0 +1,148 @@
+package rohlik.casares.casestudy.service.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doReturn;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import rohlik.casares.casestudy.dto.OrderDto;
+import rohlik.casares.casestudy.dto.OrderProductDto;
+import rohlik.casares.casestudy.dto.ProductDto;
+import rohlik.casares.casestudy.exception.OrderStatusOperationException;
+import rohlik.casares.casestudy.exception.ProductNotFoundException;
+import rohlik.casares.casestudy.model.OrderProduct;
+import rohlik.casares.casestudy.model.OrderStatus;
+import rohlik.casares.casestudy.model.Product;
+import rohlik.casares.casestudy.repository.OrderRepository;
+import rohlik.casares.casestudy.repository.OrderRepositoryCustomImpl;
+import rohlik.casares.casestudy.repository.ProductRepository;
+import rohlik.casares.casestudy.service.OrderService;
+import rohlik.casares.casestudy.service.ProductService;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:optimisticLock")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class OptimisticLockIntegrationTest {
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    ProductService productService;
+
+    @SpyBean
+    OrderRepositoryCustomImpl orderRepositoryCustom;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    void testCancelOrder_retriesAfterConflict() throws Exception {
+        final Long orderId = createOrder();
+        doReturn(false).doCallRealMethod().when(orderRepositoryCustom).updateStatus(any(), any(), any());
+
+        final OrderDto cancelled = orderService.cancelOrder(orderId);
+
+        assertEquals(OrderStatus.CANCELLED, cancelled.getStatus());
+        assertEquals(10, productRepository.findById(1L).orElseThrow().getQuantity());
+        assertEquals(1.0, meterRegistry.counter("orders.lock.conflicts", "operation", "cancel").count());
+        assertEquals(1.0, meterRegistry.counter("orders.lock.retries", "operation", "cancel").count());
+    }
+
+    @Test
+    void testCancelOrder_givesUpAfterMaxAttempts() throws Exception {
+        final Long orderId = createOrder();
+        doReturn(false).when(orderRepositoryCustom).updateStatus(any(), any(), any());
+
+        assertThrows(OptimisticLockingFailureException.class, () -> orderService.cancelOrder(orderId));
+
+        assertEquals(OrderStatus.CREATED, orderRepository.findById(orderId).orElseThrow().getStatus());
+        assertEquals(7, productRepository.findById(1L).orElseThrow().getQuantity());
+        assertEquals(3.0, meterRegistry.counter("orders.lock.conflicts", "operation", "cancel").count());
+        assertEquals(2.0, meterRegistry.counter("orders.lock.retries", "operation", "cancel").count());
+    }
+
+    @Test
+    void testPayOrder_cancelledConcurrently() throws Exception {
+        final Long orderId = createOrder();
+        doAnswer(invocation -> {
+            CompletableFuture.runAsync(() -> jdbcTemplate.update(
+                    "UPDATE orders SET status = ?, version = version + 1 WHERE id = ?",
+                    OrderStatus.CANCELLED.ordinal(), orderId)).join();
+            return invocation.callRealMethod();
+        }).doCallRealMethod().when(orderRepositoryCustom).updateStatus(any(), any(), any());
+
+        final OrderStatusOperationException e = assertThrows(
+                OrderStatusOperationException.class, () -> orderService.payOrder(orderId));
+
+        assertEquals(
+                String.format("Operation cannot be performed. Order with id [%d] is already cancelled", orderId),
+                e.getMessage());
+        assertEquals(1.0, meterRegistry.counter("orders.lock.retries", "operation", "pay").count());
+    }
+
+    @Test
+    void testUpdateProduct_keepsConcurrentStockChange() {
+        final ProductDto update = ProductDto.builder()
+                                            .name("Green apple")
+                                            .quantity(10)
+                                            .price(new BigDecimal("2.50"))
+                                            .build();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            productRepository.findById(1L);
+            CompletableFuture.runAsync(() -> productRepository.reserveQuantities(List.of(
+                    OrderProduct.builder()
+                                .product(Product.builder().id(1L).build())
+                                .productQuantity(1)
+                                .build()))).join();
+            try {
+                productService.updateProduct(1L, update);
+            }
+            catch (ProductNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        final Product product = productRepository.findById(1L).orElseThrow();
+        assertEquals("Green apple", product.getName());
+        assertEquals(9, product.getQuantity());
+    }
+
+    private Long createOrder() throws Exception {
+        return orderService.createOrder(OrderDto.builder()
+                                                 .products(List.of(OrderProductDto.builder()
+                                                                                  .product(ProductDto.builder()
+                                                                                                     .productId(1L)
+                                                                                                     .build())
+                                                                                  .productQuantity(3)
+                                                                                  .build()))
+                                                 .build())
+                           .getOrderId();
+    }
+}
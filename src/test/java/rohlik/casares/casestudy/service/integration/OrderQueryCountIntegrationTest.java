@@ -0,0 +1,215 @@
+package rohlik.casares.casestudy.service.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.annotation.DirtiesContext;
+import rohlik.casares.casestudy.dto.OrderDto;
+import rohlik.casares.casestudy.dto.OrderProductDto;
+import rohlik.casares.casestudy.dto.ProductDto;
+import rohlik.casares.casestudy.exception.OrderServiceException;
+import rohlik.casares.casestudy.model.OrderStatus;
+import rohlik.casares.casestudy.service.OrderService;
+import rohlik.casares.casestudy.service.impl.OrderServiceImpl;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:orderQueryCount",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class OrderQueryCountIntegrationTest {
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    OrderServiceImpl orderServiceImpl;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void testCreateOrder_referencesProductsWithoutLoadingThem() throws Exception {
+        // Loads the products into the catalog cache
+        orderService.createOrder(getOrderDto());
+        statistics.clear();
+
+        final OrderDto order = orderService.createOrder(getOrderDto());
+
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(0, statistics.getEntityFetchCount());
+        assertEquals(List.of(4, 6, 13), order.getProducts()
+                                             .stream()
+                                             .map(op -> op.getProduct().getQuantity())
+                                             .collect(Collectors.toList()));
+        assertEquals("Apple", order.getProducts().get(0).getProduct().getName());
+    }
+
+    @Test
+    void testCreateOrder_namesShortProductsWithoutLoadingThem() throws Exception {
+        // Loads the products into the catalog cache
+        orderService.createOrder(getOrderDto());
+        statistics.clear();
+        final OrderDto shortOrder = OrderDto.builder()
+                                            .products(List.of(OrderProductDto.builder()
+                                                                             .product(ProductDto.builder()
+                                                                                                .productId(1L)
+                                                                                                .build())
+                                                                             .productQuantity(100)
+                                                                             .build()))
+                                            .build();
+
+        // Placed past admission, which would already reject it from the availability index
+        final OrderServiceException exception = assertThrows(
+                OrderServiceException.class, () -> orderServiceImpl.createOrder(shortOrder));
+
+        assertTrue(exception.getMessage().contains("Apple - Missing items: 93"));
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(0, statistics.getEntityFetchCount());
+    }
+
+    @Test
+    void testPayOrder_loadsOrderLinesAndProductsInOneQuery() throws Exception {
+        final OrderDto orderDto = getOrderDto();
+        // Allocates the block of outbox event ids
+        orderService.createOrder(orderDto);
+        final OrderDto order = orderService.createOrder(orderDto);
+        statistics.clear();
+        StatementCounter.start();
+
+        final OrderDto paid = orderService.payOrder(order.getOrderId());
+
+        assertEquals(OrderStatus.PAID, paid.getStatus());
+        assertEquals(orderDto.getProducts().size(), paid.getProducts().size());
+        // The order with its lines and products, the status update and the outbox insert
+        assertEquals(3, StatementCounter.count());
+        assertEquals(0, statistics.getEntityFetchCount());
+        assertEquals(0, statistics.getCollectionFetchCount());
+    }
+
+    @Test
+    void testCancelOrder_loadsOrderLinesAndProductsInOneQuery() throws Exception {
+        final OrderDto orderDto = getOrderDto();
+        // Allocates the block of outbox event ids
+        orderService.createOrder(orderDto);
+        final OrderDto order = orderService.createOrder(orderDto);
+        statistics.clear();
+        StatementCounter.start();
+
+        final OrderDto cancelled = orderService.cancelOrder(order.getOrderId());
+
+        assertEquals(OrderStatus.CANCELLED, cancelled.getStatus());
+        assertEquals(orderDto.getProducts().size(), cancelled.getProducts().size());
+        // The order with its lines and products, the status update, the batched stock release and the outbox insert
+        assertEquals(4, StatementCounter.count());
+        assertEquals(0, statistics.getEntityFetchCount());
+        assertEquals(0, statistics.getCollectionFetchCount());
+    }
+
+    private OrderDto getOrderDto() throws IOException {
+        return new ObjectMapper().readValue(
+                getClass().getClassLoader().getResourceAsStream("createOrderInput.json"), OrderDto.class);
+    }
+
+    @TestConfiguration
+    static class StatementCountingConfig {
+
+        @Bean
+        static BeanPostProcessor statementCountingPostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource ? StatementCounter.wrap((DataSource) bean) : bean;
+                }
+            };
+        }
+    }
+
+    /**
+     * Counts the JDBC statements the test thread executes, whether they come from Hibernate or from a JdbcTemplate.
+     * A batch counts once.
+     */
+    static final class StatementCounter {
+
+        private static final AtomicInteger COUNT = new AtomicInteger();
+
+        private static volatile Thread countedThread;
+
+        private StatementCounter() {
+        }
+
+        static void start() {
+            COUNT.set(0);
+            countedThread = Thread.currentThread();
+        }
+
+        static int count() {
+            return COUNT.get();
+        }
+
+        static DataSource wrap(DataSource dataSource) {
+            return (DataSource) proxy(dataSource, DataSource.class, Closeable.class);
+        }
+
+        private static Object proxy(Object target, Class<?>... interfaces) {
+            return Proxy.newProxyInstance(StatementCounter.class.getClassLoader(), interfaces, (proxy, method, args) -> {
+                if (target instanceof Statement
+                        && method.getName().startsWith("execute")
+                        && Thread.currentThread() == countedThread) {
+                    COUNT.incrementAndGet();
+                }
+                final Object result;
+                try {
+                    result = method.invoke(target, args);
+                }
+                catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                if (result instanceof Connection) {
+                    return proxy(result, Connection.class);
+                }
+                if (result instanceof CallableStatement) {
+                    return proxy(result, CallableStatement.class);
+                }
+                if (result instanceof PreparedStatement) {
+                    return proxy(result, PreparedStatement.class);
+                }
+                if (result instanceof Statement) {
+                    return proxy(result, Statement.class);
+                }
+                return result;
+            });
+        }
+    }
+}
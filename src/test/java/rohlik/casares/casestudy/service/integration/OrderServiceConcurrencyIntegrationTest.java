@@ -0,0 +1,93 @@
+package rohlik.casares.casestudy.service.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import rohlik.casares.casestudy.dto.OrderDto;
+import rohlik.casares.casestudy.dto.OrderProductDto;
+import rohlik.casares.casestudy.dto.ProductDto;
+import rohlik.casares.casestudy.exception.OrderServiceException;
+import rohlik.casares.casestudy.exception.StockExceededException;
+import rohlik.casares.casestudy.model.Product;
+import rohlik.casares.casestudy.repository.OrderRepository;
+import rohlik.casares.casestudy.repository.ProductRepository;
+import rohlik.casares.casestudy.service.OrderService;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:orderConcurrency;LOCK_TIMEOUT=10000",
+        "spring.jpa.show-sql=false"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class OrderServiceConcurrencyIntegrationTest {
+
+    private static final int STOCK = 500;
+    private static final int ORDERS = 2000;
+    private static final int THREADS = 32;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Test
+    void testCreateOrder_concurrentOrdersForSameProductNeverOversell() throws Exception {
+        final Product product = productRepository.save(Product.builder()
+                                                              .name("Banana")
+                                                              .quantity(STOCK)
+                                                              .price(BigDecimal.ONE)
+                                                              .build());
+        final OrderDto orderDto = OrderDto.builder()
+                                          .products(List.of(OrderProductDto.builder()
+                                                                           .product(ProductDto.builder()
+                                                                                              .productId(product.getId())
+                                                                                              .build())
+                                                                           .productQuantity(1)
+                                                                           .build()))
+                                          .build();
+
+        final AtomicInteger created = new AtomicInteger();
+        final AtomicInteger rejected = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            futures.add(executor.submit(() -> {
+                try {
+                    orderService.createOrder(orderDto);
+                    created.incrementAndGet();
+                }
+                catch (OrderServiceException e) {
+                    // Once the stock is gone, orders are turned away as sold out
+                    assertTrue(e.getCause() instanceof StockExceededException);
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        assertEquals(STOCK, created.get());
+        assertEquals(ORDERS - STOCK, rejected.get());
+        assertEquals(0, productRepository.findById(product.getId()).orElseThrow().getQuantity());
+        assertEquals(STOCK, orderRepository.count());
+    }
+}
@@ -2,7 +2,9 @@ package rohlik.casares.casestudy.service.integration;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.fasterxml.jackson.core.ObjectCodec;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -20,6 +22,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.web.client.HttpClientErrorException;
+import rohlik.casares.casestudy.dto.BatchOrderResultDto;
 import rohlik.casares.casestudy.dto.OrderDto;
 import rohlik.casares.casestudy.dto.OrderProductDto;
 import rohlik.casares.casestudy.dto.ProductDto;
@@ -32,6 +35,7 @@ import rohlik.casares.casestudy.model.Order;
 import rohlik.casares.casestudy.model.OrderProduct;
 import rohlik.casares.casestudy.model.OrderStatus;
 import rohlik.casares.casestudy.model.Product;
+import rohlik.casares.casestudy.repository.OrderRepository;
 import rohlik.casares.casestudy.repository.ProductRepository;
 import rohlik.casares.casestudy.service.OrderService;
 import rohlik.casares.casestudy.service.impl.OrderServiceImpl;
@@ -46,6 +50,9 @@ public class OrderServiceIntegrationTest {
     @Autowired
     ProductRepository productRepository;
 
+    @Autowired
+    OrderRepository orderRepository;
+
 
     @ParameterizedTest
     @MethodSource("createOrderSuccessCases")
@@ -95,6 +102,64 @@ public class OrderServiceIntegrationTest {
     }
 
 
+    @Test
+    void testCreateOrders_reportsPerOrderResult() throws IOException {
+        final List<OrderDto> orderDtos = List.of(
+                getOrderDto(),
+                OrderDto.builder().products(List.of(orderLine(999L, 1))).build(),
+                OrderDto.builder().products(List.of(orderLine(1L, 100))).build(),
+                OrderDto.builder().products(List.of(orderLine(2L, 2), orderLine(3L, 4))).build()
+        );
+
+        final List<BatchOrderResultDto> results = orderService.createOrders(orderDtos);
+
+        assertEquals(4, results.size());
+        assertNotNull(results.get(0).getOrder());
+        assertNull(results.get(0).getError());
+        assertEquals(OrderStatus.CREATED, results.get(0).getOrder().getStatus());
+        assertEquals(new BigDecimal("10.00"), results.get(0).getOrder().getTotal());
+        assertNull(results.get(1).getOrder());
+        assertEquals("One or more products were not found", results.get(1).getError());
+        assertNull(results.get(2).getOrder());
+        assertTrue(results.get(2).getError().startsWith("Order quantity exceeded stock"));
+        assertNotNull(results.get(3).getOrder());
+        // Every accepted order reports the stock left after the whole batch
+        assertEquals(5, results.get(3).getOrder().getProducts().get(0).getProduct().getQuantity());
+        assertEquals(10, results.get(3).getOrder().getProducts().get(1).getProduct().getQuantity());
+        assertEquals("Lemon", results.get(3).getOrder().getProducts().get(1).getProduct().getName());
+
+        assertEquals(7, productRepository.findById(1L).orElseThrow().getQuantity());
+        assertEquals(5, productRepository.findById(2L).orElseThrow().getQuantity());
+        assertEquals(10, productRepository.findById(3L).orElseThrow().getQuantity());
+        assertEquals(2, orderRepository.count());
+    }
+
+    @Test
+    void testCreateOrder_mergesDuplicateLines() throws OrderServiceException {
+        final OrderDto response = orderService.createOrder(
+                OrderDto.builder().products(List.of(orderLine(1L, 3), orderLine(2L, 1), orderLine(1L, 4))).build());
+
+        assertEquals(2, response.getProducts().size());
+        assertEquals(1L, response.getProducts().get(0).getProduct().getProductId());
+        assertEquals(7, response.getProducts().get(0).getProductQuantity());
+        assertEquals(new BigDecimal("17.00"), response.getTotal());
+        assertEquals(3, productRepository.findById(1L).orElseThrow().getQuantity());
+        assertEquals(7, productRepository.findById(2L).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void testCreateOrder_duplicateLinesExceedingStock() {
+        final OrderServiceException e = assertThrows(
+                OrderServiceException.class,
+                () -> orderService.createOrder(
+                        OrderDto.builder().products(List.of(orderLine(1L, 6), orderLine(1L, 6))).build())
+        );
+
+        assertEquals(StockExceededException.class, e.getCause().getClass());
+        assertEquals(10, productRepository.findById(1L).orElseThrow().getQuantity());
+        assertEquals(0, orderRepository.count());
+    }
+
     @Test
     void testCancelOrder_success()
             throws OrderServiceException, IOException, OrderNotFoundException, OrderStatusOperationException {
@@ -280,6 +345,13 @@ public class OrderServiceIntegrationTest {
         );
     }
 
+    private OrderProductDto orderLine(Long productId, int quantity) {
+        return OrderProductDto.builder()
+                              .product(ProductDto.builder().productId(productId).build())
+                              .productQuantity(quantity)
+                              .build();
+    }
+
     private Long createNewOrder() throws IOException, OrderServiceException {
         final OrderDto order = orderService.createOrder(getOrderDto());
         return order.getOrderId();
@@ -0,0 +1,125 @@
+package rohlik.casares.casestudy.service.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import rohlik.casares.casestudy.dto.OrderDto;
+import rohlik.casares.casestudy.dto.OrderProductDto;
+import rohlik.casares.casestudy.dto.ProductDto;
+import rohlik.casares.casestudy.exception.OrderServiceException;
+import rohlik.casares.casestudy.exception.StockExceededException;
+import rohlik.casares.casestudy.model.Product;
+import rohlik.casares.casestudy.repository.OrderProductRepository;
+import rohlik.casares.casestudy.repository.OrderRepository;
+import rohlik.casares.casestudy.repository.ProductRepository;
+import rohlik.casares.casestudy.service.OrderService;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:orderWriteVolume;LOCK_TIMEOUT=10000",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class OrderWriteVolumeIntegrationTest {
+
+    private static final int STOCK = 1000;
+    private static final int ORDERS = 400;
+    private static final int THREADS = 16;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    OrderProductRepository orderProductRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void testCreateOrder_rejectedOrdersWriteNothing() throws Exception {
+        final Product banana = saveProduct("Banana");
+        final Product cherry = saveProduct("Cherry");
+        // Every other order asks for more bananas than there are, after a cherry line that could be served
+        final OrderDto served = orderOf(orderLine(banana.getId(), 1), orderLine(cherry.getId(), 1));
+        final OrderDto exceeded = orderOf(orderLine(cherry.getId(), 1), orderLine(banana.getId(), STOCK + 1));
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        final AtomicInteger created = new AtomicInteger();
+        final AtomicInteger rejected = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            final OrderDto orderDto = i % 2 == 0 ? served : exceeded;
+            futures.add(executor.submit(() -> {
+                try {
+                    orderService.createOrder(orderDto);
+                    created.incrementAndGet();
+                }
+                catch (OrderServiceException e) {
+                    assertTrue(e.getCause() instanceof StockExceededException);
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        assertEquals(ORDERS / 2, created.get());
+        assertEquals(ORDERS / 2, rejected.get());
+        // One stock update per served order and product, none for the rejected ones
+        assertEquals(banana.getVersion() + created.get(),
+                productRepository.findById(banana.getId()).orElseThrow().getVersion());
+        assertEquals(cherry.getVersion() + created.get(),
+                productRepository.findById(cherry.getId()).orElseThrow().getVersion());
+        assertEquals(STOCK - created.get(), productRepository.findById(cherry.getId()).orElseThrow().getQuantity());
+        // The order, its two lines and its outbox event per served order
+        assertEquals(4L * created.get(), statistics.getEntityInsertCount());
+        assertEquals(created.get(), orderRepository.count());
+        assertEquals(2L * created.get(), orderProductRepository.count());
+    }
+
+    private Product saveProduct(String name) {
+        return productRepository.save(Product.builder()
+                                             .name(name)
+                                             .quantity(STOCK)
+                                             .price(BigDecimal.ONE)
+                                             .build());
+    }
+
+    private static OrderDto orderOf(OrderProductDto... lines) {
+        return OrderDto.builder().products(List.of(lines)).build();
+    }
+
+    private static OrderProductDto orderLine(Long productId, int quantity) {
+        return OrderProductDto.builder()
+                              .product(ProductDto.builder().productId(productId).build())
+                              .productQuantity(quantity)
+                              .build();
+    }
+}
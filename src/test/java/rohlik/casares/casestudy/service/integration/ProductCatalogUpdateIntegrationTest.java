@@ -0,0 +1,111 @@
+package rohlik.casares.casestudy.service.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.web.client.RestTemplate;
+import rohlik.casares.casestudy.dto.OrderDto;
+import rohlik.casares.casestudy.dto.OrderProductDto;
+import rohlik.casares.casestudy.dto.ProductDto;
+import rohlik.casares.casestudy.model.Product;
+import rohlik.casares.casestudy.repository.ProductRepository;
+import rohlik.casares.casestudy.service.OrderService;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.datasource.url=jdbc:h2:mem:productCatalogUpdate;LOCK_TIMEOUT=10000",
+                "spring.jpa.show-sql=false"
+        }
+)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class ProductCatalogUpdateIntegrationTest {
+
+    private static final int STOCK = 100_000;
+    private static final int UPDATES = 50;
+    private static final int THREADS = 8;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @LocalServerPort
+    int port;
+
+    @Test
+    void testUpdateProduct_succeedsWhileProductIsReserved() throws Exception {
+        final Product product = productRepository.save(Product.builder()
+                                                              .name("Banana")
+                                                              .quantity(STOCK)
+                                                              .price(BigDecimal.ONE)
+                                                              .build());
+        final OrderDto orderDto = OrderDto.builder()
+                                          .products(List.of(OrderProductDto.builder()
+                                                                           .product(ProductDto.builder()
+                                                                                              .productId(product.getId())
+                                                                                              .build())
+                                                                           .productQuantity(1)
+                                                                           .build()))
+                                          .build();
+
+        final AtomicBoolean updating = new AtomicBoolean(true);
+        final AtomicInteger created = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                while (updating.get()) {
+                    orderService.createOrder(orderDto);
+                    created.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        final RestTemplate restTemplate = new RestTemplate();
+        final String url = "http://localhost:" + port + "/api/products/" + product.getId();
+        try {
+            for (int i = 0; i < UPDATES; i++) {
+                final ProductDto update = ProductDto.builder()
+                                                    .name("Banana " + i)
+                                                    .price(BigDecimal.valueOf(i + 1))
+                                                    .build();
+                final ResponseEntity<ProductDto> response = restTemplate.exchange(
+                        url, HttpMethod.PUT, new HttpEntity<>(update), ProductDto.class);
+                assertEquals(HttpStatus.OK, response.getStatusCode());
+            }
+        }
+        finally {
+            updating.set(false);
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        final Product updated = productRepository.findById(product.getId()).orElseThrow();
+        assertEquals("Banana " + (UPDATES - 1), updated.getName());
+        assertEquals(0, BigDecimal.valueOf(UPDATES).compareTo(updated.getPrice()));
+        assertEquals(STOCK - created.get(), updated.getQuantity());
+    }
+}